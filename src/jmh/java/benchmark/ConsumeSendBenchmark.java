@@ -0,0 +1,168 @@
+package benchmark;
+
+import common.network.DataPayloadCodec;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.OverflowPolicy;
+import hashing.RoutingSnapshot;
+import hashing.RoutingTable;
+import hashing.impl.Murmur3Partitioner;
+import hashing.impl.RoutingTableImpl;
+import metrics.impl.MetricsRegistryImpl;
+import model.Node;
+import model.impl.NodeImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.*;
+import server.AdmissionSettings;
+import server.ServerApplication;
+import server.ServerContainer;
+import server.ServerSettings;
+import server.impl.ServerImpl;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs ServerApplication.consume against a real ServerImpl whose clients are loopback sockets drained by a
+ * background thread, so the measured path covers parsing, registry lookups, reactor hand-off and framing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class ConsumeSendBenchmark {
+
+    private static final String TOPIC = "benchmark";
+    private static final int PARTITIONS_COUNT = 30;
+    private static final int RECORDS_PER_POLL = 100;
+
+    @Param({"1", "100"})
+    private int clientsCount;
+
+    @Param({"2"})
+    private int reactorsCount;
+
+    @Param({"0", "67108864"})
+    private int mailboxCapacity;
+
+    private ServerApplication application;
+    private ConsumerRecords<Integer, byte[]> records;
+    private final List<SocketChannel> clients = new ArrayList<>();
+    private Selector drainSelector;
+    private Thread drainThread;
+
+    @Setup
+    public void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Node node = new NodeImpl(0, "localhost", port);
+        RoutingTable routingTable = new RoutingTableImpl(new int[PARTITIONS_COUNT],
+                new Murmur3Partitioner(PARTITIONS_COUNT));
+        ServerContainer container = new ServerContainer() {
+            @Override
+            public Node getNode(int clientId) {
+                return node;
+            }
+
+            @Override
+            public int partition(int clientId) {
+                return routingTable.partition(clientId);
+            }
+
+            @Override
+            public RoutingSnapshot routingSnapshot() {
+                return null;
+            }
+        };
+        NetworkSettings settings = new NetworkSettings(4096, 1 << 20, 1024, 1 << 20, 1 << 18, OverflowPolicy.DROP_OLDEST,
+                true, 0, 0);
+        ServerImpl server = new ServerImpl("localhost", port, container, settings,
+                new ServerSettings(reactorsCount, ServerSettings.Balancing.ROUND_ROBIN, false, mailboxCapacity, 60000, 1000,
+                        5000, 0, 10000),
+                new AdmissionSettings(0, 0, 0, 64), PARTITIONS_COUNT,
+                new MetricsRegistryImpl());
+
+        application = new ServerApplication();
+        Field serverField = ServerApplication.class.getDeclaredField("server");
+        serverField.setAccessible(true);
+        serverField.set(application, server);
+
+        drainSelector = Selector.open();
+        for (int clientId = 0; clientId < clientsCount; clientId++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+            ByteBuffer resolve = ByteBuffer.allocate(FrameCodec.frameSize(0));
+            FrameCodec.encode(resolve, Opcode.RESOLVE, clientId);
+            resolve.flip();
+            channel.write(resolve);
+            channel.configureBlocking(false);
+            channel.register(drainSelector, SelectionKey.OP_READ);
+            clients.add(channel);
+        }
+        while (server.connectedClients().size() < clientsCount) {
+            Thread.sleep(10);
+        }
+        drainThread = new Thread(this::drain, "drain");
+        drainThread.start();
+
+        Map<TopicPartition, List<ConsumerRecord<Integer, byte[]>>> polled = new HashMap<>();
+        for (int i = 0; i < RECORDS_PER_POLL; i++) {
+            int clientId = i % clientsCount;
+            int partition = routingTable.partition(clientId);
+            polled.computeIfAbsent(new TopicPartition(TOPIC, partition), p -> new ArrayList<>())
+                    .add(new ConsumerRecord<>(TOPIC, partition, i, clientId,
+                            DataPayloadCodec.encode(i, System.currentTimeMillis(), i)));
+        }
+        records = new ConsumerRecords<>(polled);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        drainThread.interrupt();
+        drainSelector.wakeup();
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS_PER_POLL)
+    public void consume() {
+        application.consume(records);
+    }
+
+    private void drain() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                drainSelector.select();
+                for (SelectionKey key : drainSelector.selectedKeys()) {
+                    buffer.clear();
+                    while (((SocketChannel) key.channel()).read(buffer) > 0) {
+                        buffer.clear();
+                    }
+                }
+                drainSelector.selectedKeys().clear();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import hashing.HashRing;
+import hashing.HashRingAlgorithm;
+import hashing.impl.HashRingFactory;
+import hashing.impl.Murmur3Partitioner;
+import model.Range;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class HashRingBenchmark {
+
+    private static final int KEYS_COUNT = 1024;
+
+    @Param({"SPLIT_POINTS", "RENDEZVOUS", "JUMP", "MAGLEV"})
+    private HashRingAlgorithm algorithm;
+
+    @Param({"3", "10", "100", "1000"})
+    private int nodesCount;
+
+    @Param({"30"})
+    private int partitionsCount;
+
+    private HashRing<Integer, Integer> ring;
+    private int[] keys;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ring = HashRingFactory.create(algorithm, new Murmur3Partitioner(partitionsCount), 3, 1);
+        Multimap<Integer, Integer> state = ArrayListMultimap.create();
+        for (int node = 0; node < nodesCount; node++) {
+            state.putAll(node, ring.generateSplitPoints(node));
+        }
+        ring.update(state);
+        Random random = new Random(137);
+        keys = new int[KEYS_COUNT];
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            keys[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public Integer hash() {
+        index = (index + 1) & (KEYS_COUNT - 1);
+        return ring.hash(keys[index]);
+    }
+
+    @Benchmark
+    public Collection<Range> getPartitions() {
+        index = (index + 1) & (KEYS_COUNT - 1);
+        return ring.getPartitions(index % nodesCount);
+    }
+}
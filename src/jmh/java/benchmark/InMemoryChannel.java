@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Discards everything written to it and replays the same source bytes on reads.
+ * A read returns 0 once the source is exhausted and rewinds it for the next read.
+ */
+class InMemoryChannel implements GatheringByteChannel, ReadableByteChannel {
+
+    private final ByteBuffer source;
+    private long bytesWritten;
+    private boolean open = true;
+
+    InMemoryChannel() {
+        this(new byte[0]);
+    }
+
+    InMemoryChannel(byte[] source) {
+        this.source = ByteBuffer.wrap(source);
+    }
+
+    long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        if (!source.hasRemaining()) {
+            source.rewind();
+            return 0;
+        }
+        int count = Math.min(dst.remaining(), source.remaining());
+        int limit = source.limit();
+        source.limit(source.position() + count);
+        dst.put(source);
+        source.limit(limit);
+        return count;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        int count = src.remaining();
+        src.position(src.limit());
+        bytesWritten += count;
+        return count;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+        long count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            count += write(srcs[i]);
+        }
+        return count;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+        return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
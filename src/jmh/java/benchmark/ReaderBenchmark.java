@@ -0,0 +1,61 @@
+package benchmark;
+
+import common.network.AbstractReader;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.OverflowPolicy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class ReaderBenchmark {
+
+    private static final int FRAMES_PER_READ = 32;
+
+    private static class BlackholeReader extends AbstractReader {
+        private Blackhole blackhole;
+
+        BlackholeReader(InMemoryChannel channel, BufferPool bufferPool, NetworkSettings settings) {
+            super(channel, bufferPool, settings);
+        }
+
+        @Override
+        protected void handleFrame(byte opcode, int field, ByteBuffer payload) {
+            blackhole.consume(field);
+            blackhole.consume(payload.remaining());
+        }
+    }
+
+    @Param({"16", "100"})
+    private int payloadSize;
+
+    private BlackholeReader reader;
+
+    @Setup
+    public void setUp() {
+        NetworkSettings settings = new NetworkSettings(8192, 1 << 20, 16, 1 << 16, 1 << 14, OverflowPolicy.DROP_OLDEST,
+                true, 0, 0);
+        ByteBuffer frames = ByteBuffer.allocate(FrameCodec.frameSize(payloadSize) * FRAMES_PER_READ);
+        for (int i = 0; i < FRAMES_PER_READ; i++) {
+            FrameCodec.encode(frames, Opcode.DATA, i, new byte[payloadSize]);
+        }
+        reader = new BlackholeReader(new InMemoryChannel(frames.array()), new BufferPool(settings), settings);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES_PER_READ)
+    public int decode(Blackhole blackhole) {
+        reader.blackhole = blackhole;
+        return reader.performRead();
+    }
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import common.network.BasicWriter;
+import common.network.BufferPool;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.OverflowPolicy;
+import common.network.WriteListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class WriterBenchmark {
+
+    @Param({"16", "100", "1000"})
+    private int payloadSize;
+
+    private BasicWriter writer;
+    private ByteBuffer payload;
+
+    @Setup
+    public void setUp() {
+        NetworkSettings settings = new NetworkSettings(4096, 1 << 20, 16, 1 << 16, 1 << 14, OverflowPolicy.DROP_OLDEST,
+                true, 0, 0);
+        writer = new BasicWriter(new InMemoryChannel(), new BufferPool(settings), settings, new WriteListener() {
+            @Override
+            public void onWritePending() {
+            }
+
+            @Override
+            public void onWriteSuffer() {
+            }
+        });
+        payload = ByteBuffer.allocate(payloadSize);
+    }
+
+    @Benchmark
+    public int writeFrame() {
+        return writer.writeFrame(Opcode.DATA, 42, payload);
+    }
+}
@@ -0,0 +1,94 @@
+package app;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import hashing.HashRing;
+import hashing.HashRingAlgorithm;
+import hashing.RoutingTable;
+import hashing.impl.HashRingFactory;
+import hashing.impl.Murmur3Partitioner;
+
+import java.util.Random;
+
+public class HashRingReport {
+
+    private static final int SPLIT_POINTS_COUNT = 3;
+    private static final int RENDEZVOUS_WEIGHT = 1;
+    private static final int TRIALS = 50;
+
+    public static void main(String[] args) {
+        int partitionsCount = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int maxNodes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.out.printf("Partitions: %d, trials per row: %d%n", partitionsCount, TRIALS);
+        System.out.printf("%-13s %5s %10s %10s %10s %10s %10s%n", "algorithm", "nodes", "load cv", "max/mean",
+                "join moved", "leave moved", "tail leave");
+        for (HashRingAlgorithm algorithm : HashRingAlgorithm.values()) {
+            for (int nodes = 2; nodes <= maxNodes; nodes++) {
+                report(algorithm, partitionsCount, nodes);
+            }
+        }
+        System.out.println("leave moved: a random node leaves, tail leave: the highest id leaves. "
+                + "JUMP buckets follow sorted ids, so only a tail leave moves the minimal 1/N.");
+    }
+
+    private static void report(HashRingAlgorithm algorithm, int partitionsCount, int nodesCount) {
+        Random random = new Random(nodesCount);
+        double cv = 0;
+        double maxToMean = 0;
+        double joinMoved = 0;
+        double leaveMoved = 0;
+        double tailLeaveMoved = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            HashRing<Integer, Integer> ring = HashRingFactory.create(algorithm,
+                    new Murmur3Partitioner(partitionsCount), SPLIT_POINTS_COUNT, RENDEZVOUS_WEIGHT);
+            Multimap<Integer, Integer> state = ArrayListMultimap.create();
+            int baseId = random.nextInt(1000) * 100;
+            for (int node = 0; node < nodesCount; node++) {
+                state.putAll(baseId + node, ring.generateSplitPoints(baseId + node));
+            }
+            ring.update(state);
+            RoutingTable base = ring.routingTable();
+
+            int[] loads = new int[nodesCount];
+            for (int partition = 0; partition < partitionsCount; partition++) {
+                loads[base.owner(partition) - baseId]++;
+            }
+            double mean = (double) partitionsCount / nodesCount;
+            double variance = 0;
+            int max = 0;
+            for (int load : loads) {
+                variance += (load - mean) * (load - mean);
+                max = Math.max(max, load);
+            }
+            cv += Math.sqrt(variance / nodesCount) / mean;
+            maxToMean += max / mean;
+
+            state.putAll(baseId + nodesCount, ring.generateSplitPoints(baseId + nodesCount));
+            ring.update(state);
+            joinMoved += movedFraction(base, ring.routingTable());
+
+            state.removeAll(baseId + nodesCount);
+            Multimap<Integer, Integer> tailLeft = ArrayListMultimap.create(state);
+            tailLeft.removeAll(baseId + nodesCount - 1);
+            ring.update(tailLeft);
+            tailLeaveMoved += movedFraction(base, ring.routingTable());
+
+            state.removeAll(baseId + random.nextInt(nodesCount));
+            ring.update(state);
+            leaveMoved += movedFraction(base, ring.routingTable());
+        }
+        System.out.printf("%-13s %5d %10.3f %10.3f %10.3f %10.3f %10.3f%n", algorithm, nodesCount, cv / TRIALS,
+                maxToMean / TRIALS, joinMoved / TRIALS, leaveMoved / TRIALS, tailLeaveMoved / TRIALS);
+    }
+
+    private static double movedFraction(RoutingTable before, RoutingTable after) {
+        int moved = 0;
+        for (int partition = 0; partition < before.partitionsCount(); partition++) {
+            if (before.owner(partition) != after.owner(partition)) {
+                moved++;
+            }
+        }
+        return (double) moved / before.partitionsCount();
+    }
+}
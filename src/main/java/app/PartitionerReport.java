@@ -0,0 +1,57 @@
+package app;
+
+import hashing.Partitioner;
+import hashing.impl.Murmur3Partitioner;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+public class PartitionerReport {
+
+    private static final int KEYS_COUNT = 100000;
+
+    public static void main(String[] args) {
+        int partitionsCount = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        Partitioner partitioner = new Murmur3Partitioner(partitionsCount);
+
+        Random random = new Random(137);
+        System.out.printf("Partitions: %d, keys per distribution: %d%n", partitionsCount, KEYS_COUNT);
+        System.out.printf("%-24s %-10s %10s %10s %10s%n", "distribution", "hash", "load cv", "max/mean", "negative");
+        report("sequential", i -> i, partitionsCount, partitioner);
+        report("sequential from 1e9", i -> 1_000_000_000 + i, partitionsCount, partitioner);
+        report("stride " + partitionsCount, i -> i * partitionsCount, partitionsCount, partitioner);
+        report("stride 1024", i -> i << 10, partitionsCount, partitioner);
+        report("random int", i -> random.nextInt(), partitionsCount, partitioner);
+        report("negative sequential", i -> -1 - i, partitionsCount, partitioner);
+    }
+
+    private static void report(String name, IntUnaryOperator keys, int partitionsCount, Partitioner partitioner) {
+        int[] identity = new int[partitionsCount];
+        int[] murmur3 = new int[partitionsCount];
+        int negative = 0;
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            int key = keys.applyAsInt(i);
+            int identityPartition = Integer.hashCode(key) % partitionsCount;
+            if (identityPartition < 0) {
+                negative++;
+            } else {
+                identity[identityPartition]++;
+            }
+            murmur3[partitioner.partition(key)]++;
+        }
+        print(name, "identity", identity, negative);
+        print("", partitioner.toString(), murmur3, 0);
+    }
+
+    private static void print(String name, String hash, int[] loads, int negative) {
+        double mean = (double) KEYS_COUNT / loads.length;
+        double variance = 0;
+        int max = 0;
+        for (int load : loads) {
+            variance += (load - mean) * (load - mean);
+            max = Math.max(max, load);
+        }
+        System.out.printf("%-24s %-10s %10.3f %10.3f %10d%n", name, hash, Math.sqrt(variance / loads.length) / mean,
+                max / mean, negative);
+    }
+}
@@ -4,14 +4,14 @@ import common.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import producer.PeriodicTestKafkaProducer;
+import producer.OpenLoopTestKafkaProducer;
 
 import java.util.concurrent.CountDownLatch;
 
 public class ProducerLauncher {
     public static void main(String[] args) throws InterruptedException {
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext("spring.config.producer");
-        Service service = context.getBean(PeriodicTestKafkaProducer.class);
+        Service service = context.getBean(OpenLoopTestKafkaProducer.class);
 
         CountDownLatch latch = new CountDownLatch(1);
         Runtime.getRuntime().addShutdownHook(new Thread(latch::countDown));
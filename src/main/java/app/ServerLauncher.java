@@ -34,12 +34,21 @@ public class ServerLauncher {
 
         Service service = beanFactory.getBean(ServerApplication.class);
         CountDownLatch latch = new CountDownLatch(1);
-        Runtime.getRuntime().addShutdownHook(new Thread(latch::countDown));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            latch.countDown();
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
         Thread.setDefaultUncaughtExceptionHandler((t, e) -> logger.error("Uncaught error in thread " + t.getName(), e));
 
         service.start();
         latch.await();
         service.stop();
+        stopped.countDown();
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ServerLauncher.class);
@@ -4,6 +4,7 @@ public interface Client extends ClientReaderListener {
     void resolveServer();
     void onConnect();
     void onConnectionFail();
+    void onDisconnect();
     void doRead();
     int doWrite();
     void close();
@@ -1,73 +1,172 @@
 package client;
 
 import client.impl.ClientImpl;
+import client.impl.MultiplexedClientImpl;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import common.Service;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.SocketOptions;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
+import model.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientApplication implements ClientContainer, Service {
 
+    private static final long RAMP_UP_PERIOD = 10;
+    private static final int MAX_BACKOFF_SHIFT = 20;
+    private static final int MAX_REDIRECTS = 3;
+
     private final int clientsCount;
     private List<InetSocketAddress> addresses;
 
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(3);
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final ExecutorService reactorExecutor;
+    private final ClientReactor[] reactors;
 
     private final Random random = new Random(137);
-    private Map<Integer, SelectionKey> clientKeys = Maps.newHashMap();
-    private Map<Integer, Integer> clientReconnectCount = Maps.newHashMap();
+    // indexed by client id, each slot is only touched by the reactor owning the client
+    private final SelectionKey[] clientKeys;
+    private final int[] reconnectCounts;
+    private final long[] resolveStarts;
+    private final long[] redirectStarts;
+    private final int[] redirectCounts;
+    private final long[] redirectVersions;
+    private final long[] lastSequences;
+    private final AtomicInteger activeClients = new AtomicInteger();
 
-    private Selector selector;
     private final long spawnDelay;
     private final long decommissionDelay;
+    private final NetworkSettings networkSettings;
+    private final BufferPool bufferPool;
+    private final boolean routingCache;
+    private final boolean multiplexed;
+    private final long statsInterval;
+    private final LoadSettings loadSettings;
+    private final ReconnectSettings reconnectSettings;
+    private final Partitioner partitioner;
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    private final ConnectionStats connectionStats = new ConnectionStats();
+    private volatile RoutingSnapshot routingSnapshot;
+    private volatile long invalidatedRoutingVersion = RoutingSnapshot.NO_VERSION;
+    private ScheduledFuture<?> rampUp;
+    private long rampUpStart;
+    private int rampedUpClients;
 
     public ClientApplication(int clientsCount, int spawnDelay, int decommissionDelay,
-                             Collection<InetSocketAddress> addresses) {
-        this.clientsCount = clientsCount;
+                             Collection<InetSocketAddress> addresses, NetworkSettings networkSettings,
+                             boolean routingCache, boolean multiplexed, long statsInterval, LoadSettings loadSettings,
+                             ReconnectSettings reconnectSettings, Partitioner partitioner) {
+        this.clientsCount = Math.max(clientsCount, loadSettings.clientsCount());
         this.addresses = Lists.newArrayList(addresses);
         this.spawnDelay = spawnDelay;
         this.decommissionDelay = decommissionDelay;
+        this.networkSettings = networkSettings;
+        this.bufferPool = new BufferPool(networkSettings);
+        this.routingCache = routingCache;
+        this.multiplexed = multiplexed;
+        this.statsInterval = statsInterval;
+        this.loadSettings = loadSettings;
+        this.reconnectSettings = reconnectSettings;
+        this.partitioner = partitioner;
+        this.clientKeys = new SelectionKey[this.clientsCount];
+        this.reconnectCounts = new int[this.clientsCount];
+        this.resolveStarts = new long[this.clientsCount];
+        this.redirectStarts = new long[this.clientsCount];
+        this.redirectCounts = new int[this.clientsCount];
+        this.redirectVersions = new long[this.clientsCount];
+        this.lastSequences = new long[this.clientsCount];
+        Arrays.fill(lastSequences, FrameCodec.NO_SEQUENCE);
+        this.reactors = new ClientReactor[loadSettings.selectorsCount()];
+        this.reactorExecutor = Executors.newFixedThreadPool(reactors.length,
+                new ThreadFactoryBuilder().setNameFormat("client-reactor-%d").build());
     }
 
     @Override
     public void start() {
-        logger.info("Starting client application");
+        logger.info("Starting client application with {} selectors", reactors.length);
         try {
-            selector = Selector.open();
+            for (int i = 0; i < reactors.length; i++) {
+                reactors[i] = new ClientReactor(i, connectionStats);
+                reactorExecutor.execute(reactors[i]);
+            }
         } catch (IOException e) {
             logger.error("Error while opening selector", e);
         }
-        executor.execute(this::processIo);
-        executor.scheduleAtFixedRate(this::spawnClient, 0, spawnDelay, TimeUnit.MILLISECONDS);
+        if (loadSettings.enabled()) {
+            logger.info("Ramping up {} clients at {} connects per second", loadSettings.clientsCount(),
+                    loadSettings.connectRate());
+            rampUpStart = System.nanoTime();
+            rampUp = executor.scheduleAtFixedRate(this::rampUp, RAMP_UP_PERIOD, RAMP_UP_PERIOD, TimeUnit.MILLISECONDS);
+        } else {
+            executor.scheduleAtFixedRate(this::spawnClient, 0, spawnDelay, TimeUnit.MILLISECONDS);
+        }
         executor.scheduleAtFixedRate(this::decommissionClient, 0, decommissionDelay, TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(this::report, statsInterval, statsInterval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void stop() {
         logger.info("Stopping client application");
         executor.shutdown();
+        reactorExecutor.shutdownNow();
+    }
+
+    private void rampUp() {
+        long elapsed = System.nanoTime() - rampUpStart;
+        long due = Math.min(loadSettings.clientsCount(), elapsed * loadSettings.connectRate() / TimeUnit.SECONDS.toNanos(1));
+        while (rampedUpClients < due) {
+            int clientId = rampedUpClients++;
+            reactor(clientId).execute(() -> spawnClient(clientId));
+        }
+        if (rampedUpClients == loadSettings.clientsCount()) {
+            logger.info("Ramped up {} clients in {} ms", rampedUpClients, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            rampUp.cancel(false);
+        }
+    }
+
+    private void report() {
+        latencyRecorder.report();
+        connectionStats.report(activeClients.get());
+    }
+
+    private ClientReactor reactor(int clientId) {
+        return reactors[clientId % reactors.length];
     }
 
     private void spawnClient() {
         logger.info("Automatic request to spawn client");
         int clientId = random.nextInt(clientsCount);
-        spawnClient(clientId);
+        reactor(clientId).execute(() -> spawnClient(clientId));
     }
 
     private void spawnClient(int clientId) {
         logger.info("Spawning client {}", clientId);
+        RoutingSnapshot snapshot = routingSnapshot;
+        Node owner = snapshot != null ? snapshot.owner(clientId) : null;
+        if (owner != null) {
+            logger.info("Client {} is routed to {} by snapshot version {}", clientId, owner, snapshot.version());
+            spawnClient(clientId, owner.host(), owner.port());
+            return;
+        }
         InetSocketAddress address = addresses.get(random.nextInt(addresses.size()));
         spawnClient(clientId, address.getHostName(), address.getPort());
     }
@@ -75,116 +174,190 @@ public class ClientApplication implements ClientContainer, Service {
     private void spawnClient(int clientId, String host, int port) {
         logger.info("Request to spawn client {} with connection to {}:{}", clientId, host, port);
         try {
-            if (clientKeys.containsKey(clientId)) {
+            if (clientKeys[clientId] != null) {
                 logger.info("Client {} is already connected", clientId);
                 return;
             }
-            SocketChannel socketChannel = SocketChannel.open();
-            socketChannel.configureBlocking(false);
-            Client client = new ClientImpl(socketChannel, clientId, host, port, this);
-            selector.wakeup();
-            SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ, client);
-            socketChannel.connect(new InetSocketAddress(host, port));
-            clientKeys.put(clientId, selectionKey);
-            clientReconnectCount.put(clientId, 0);
+            ClientReactor reactor = reactor(clientId);
+            if (multiplexed) {
+                subscribeClient(reactor, clientId, host, port);
+            } else {
+                SocketChannel socketChannel = SocketChannel.open();
+                socketChannel.configureBlocking(false);
+                SocketOptions.apply(socketChannel, networkSettings);
+                Client client = new ClientImpl(socketChannel, clientId, host, port, this, bufferPool, networkSettings,
+                        partitioner);
+                clientKeys[clientId] = reactor.connect(socketChannel, client, host, port);
+            }
+            activeClients.incrementAndGet();
         } catch (IOException e) {
             logger.error("IO while spawning client", e);
         }
     }
 
+    private void subscribeClient(ClientReactor reactor, int clientId, String host, int port) throws IOException {
+        String address = host + ":" + port;
+        SelectionKey selectionKey = reactor.multiplexedConnection(address);
+        if (selectionKey == null) {
+            SocketChannel socketChannel = SocketChannel.open();
+            socketChannel.configureBlocking(false);
+            SocketOptions.apply(socketChannel, networkSettings);
+            MultiplexedClient client = new MultiplexedClientImpl(socketChannel, host, port, this, bufferPool,
+                    networkSettings, partitioner);
+            selectionKey = reactor.connect(socketChannel, client, host, port);
+            reactor.addMultiplexedConnection(address, selectionKey);
+        }
+        clientKeys[clientId] = selectionKey;
+        ((MultiplexedClient) selectionKey.attachment()).subscribe(clientId);
+    }
+
     private void decommissionClient() {
         logger.info("Automatic request to decommission client");
-        decommissionClient(random.nextInt(clientsCount));
+        int clientId = random.nextInt(clientsCount);
+        reactor(clientId).execute(() -> decommissionClient(clientId));
     }
 
     private void decommissionClient(int clientId) {
         logger.info("Request to decommission client {}", clientId);
-        logger.info("Killing client client {}", clientId);
-        if (!clientKeys.containsKey(clientId)) {
+        SelectionKey selectionKey = clientKeys[clientId];
+        if (selectionKey == null) {
             logger.info("Client {} is not active", clientId);
             return;
         }
-        clientReconnectCount.remove(clientId);
-        SelectionKey selectionKey = clientKeys.remove(clientId);
+        clientKeys[clientId] = null;
+        resolveStarts[clientId] = 0;
+        activeClients.decrementAndGet();
         Client client = (Client) selectionKey.attachment();
-        client.close();
+        if (client instanceof MultiplexedClient) {
+            ((MultiplexedClient) client).unsubscribe(clientId);
+        } else {
+            reactor(clientId).close(client);
+        }
     }
 
     @Override
-    public void onWriteSuffer(ClientImpl client) {
-        logger.info("Client writes suffer");
-        Optional<SelectionKey> selectionKeyOption = selector.keys().stream().filter(k -> k.attachment().equals(client)).findFirst();
-        if (selectionKeyOption.isPresent()) {
-            SelectionKey key = selectionKeyOption.get();
-            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+    public void onWritePending(Client client) {
+        ClientReactor reactor = ClientReactor.current();
+        if (reactor == null) {
+            logger.warn("Pending write is reported outside of client reactors");
+            return;
         }
+        reactor.requestWrite(client);
+    }
+
+    @Override
+    public void onResolveRequested(int clientId) {
+        resolveStarts[clientId] = System.nanoTime();
     }
 
     @Override
     public void onConnectionEstablished(int clientId) {
-        clientReconnectCount.put(clientId, 0);
+        reconnectCounts[clientId] = 0;
+        long now = System.nanoTime();
+        if (resolveStarts[clientId] != 0) {
+            connectionStats.recordResolve(now - resolveStarts[clientId]);
+            resolveStarts[clientId] = 0;
+        }
+        if (redirectStarts[clientId] != 0) {
+            connectionStats.recordRedirect(now - redirectStarts[clientId]);
+            redirectStarts[clientId] = 0;
+        }
+    }
+
+    @Override
+    public void onMessage(int clientId, long sequence, ByteBuffer payload) {
+        if (sequence <= lastSequences[clientId]) {
+            return;
+        }
+        lastSequences[clientId] = sequence;
+        redirectCounts[clientId] = 0;
+        latencyRecorder.record(clientId, payload);
+    }
+
+    @Override
+    public long lastSequence(int clientId) {
+        return lastSequences[clientId];
     }
 
     @Override
     public void requestReconnect(int clientId) {
-        int reconnectCount = clientReconnectCount.get(clientId);
+        int reconnectCount = reconnectCounts[clientId];
         logger.info("Request #{} from client {} to reconnect", reconnectCount, clientId);
         decommissionClient(clientId);
-        if (reconnectCount < 3) {
-            spawnClient(clientId);
-            clientReconnectCount.put(clientId, reconnectCount + 1);
-        } else {
+        if (reconnectSettings.maxAttempts() > 0 && reconnectCount >= reconnectSettings.maxAttempts()) {
             logger.warn("Client {} exceeded number of reconnects.", clientId);
+            return;
+        }
+        if (executor.isShutdown()) {
+            return;
         }
+        reconnectCounts[clientId] = reconnectCount + 1;
+        long delay = reconnectDelay(reconnectCount);
+        logger.info("Client {} reconnects in {} ms", clientId, delay);
+        executor.schedule(() -> reactor(clientId).execute(() -> spawnClient(clientId)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    // full jitter: uniform in [0, min(max, base * 2^attempt)] so clients dropped together spread out
+    private long reconnectDelay(int attempt) {
+        long cap = Math.min(reconnectSettings.maxDelay(),
+                reconnectSettings.baseDelay() << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
     }
 
     @Override
     public void requestReconnect(int clientId, String host, int port) {
         logger.info("Request from client {} to reconnect to {}:{}", clientId, host, port);
+        long version = routingVersion();
+        if (redirectVersions[clientId] != version) {
+            redirectVersions[clientId] = version;
+            redirectCounts[clientId] = 0;
+        }
+        int redirectCount = redirectCounts[clientId]++;
+        if (redirectCount >= MAX_REDIRECTS) {
+            logger.warn("Client {} was redirected {} times at routing version {}. Reconnecting with backoff",
+                    clientId, redirectCount, version);
+            reconnectCounts[clientId] = Math.max(reconnectCounts[clientId], redirectCount - MAX_REDIRECTS);
+            requestReconnect(clientId);
+            return;
+        }
+        redirectStarts[clientId] = System.nanoTime();
         decommissionClient(clientId);
         spawnClient(clientId, host, port);
     }
 
-    private void processIo() {
-        while (!Thread.currentThread().isInterrupted()) {
-            try {
-                int selectCount = selector.select();
-                if (selectCount == 0) {
-                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
-                }
-            } catch (IOException e) {
-                logger.error("Error while performing select", e);
-            }
-            Set<SelectionKey> selectedKeys = selector.selectedKeys();
-            Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
-            while (keyIterator.hasNext()) {
-                SelectionKey key = keyIterator.next();
-                Client client = (Client) key.attachment();
-
-                if (key.isConnectable()) {
-                    try {
-                        ((SocketChannel) key.channel()).finishConnect();
-                        client.onConnect();
-                    } catch (IOException e) {
-                        logger.error("Connection error. Client will retry.", e);
-                        client.onConnectionFail();
-                        continue;
-                    }
-                }
-                if (key.isReadable()) {
-                    client.doRead();
-                }
-                if (key.isWritable()) {
-                    int writeBytes = client.doWrite();
-                    if (writeBytes != 0) {
-                        logger.info("Removing OP_WRITE flag from selection");
-                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
-                    }
-                }
-                keyIterator.remove();
+    @Override
+    public long routingVersion() {
+        if (!routingCache) {
+            return RoutingSnapshot.NOT_REQUESTED;
+        }
+        RoutingSnapshot snapshot = routingSnapshot;
+        return snapshot != null ? snapshot.version() : invalidatedRoutingVersion;
+    }
+
+    @Override
+    public synchronized void onConnectionFail(String host, int port) {
+        RoutingSnapshot snapshot = routingSnapshot;
+        if (snapshot == null) {
+            return;
+        }
+        for (Node node : snapshot.nodes().values()) {
+            if (node.port() == port && node.host().equals(host)) {
+                logger.info("Dropping routing snapshot {} pointing at unreachable {}:{}", snapshot.version(), host, port);
+                invalidatedRoutingVersion = snapshot.version();
+                routingSnapshot = null;
+                return;
             }
         }
     }
 
+    @Override
+    public synchronized void onRoutingSnapshot(RoutingSnapshot snapshot) {
+        if (!routingCache || snapshot.version() <= routingVersion()) {
+            return;
+        }
+        logger.info("Caching routing snapshot {}", snapshot);
+        routingSnapshot = snapshot;
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(ClientApplication.class);
 }
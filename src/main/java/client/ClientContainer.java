@@ -1,10 +1,18 @@
 package client;
 
-import client.impl.ClientImpl;
+import hashing.RoutingSnapshot;
+
+import java.nio.ByteBuffer;
 
 public interface ClientContainer {
-    void onWriteSuffer(ClientImpl client);
+    void onWritePending(Client client);
+    void onResolveRequested(int clientId);
     void onConnectionEstablished(int clientId);
+    void onMessage(int clientId, long sequence, ByteBuffer payload);
+    long lastSequence(int clientId);
+    void onConnectionFail(String host, int port);
     void requestReconnect(int clientId);
     void requestReconnect(int clientId, String host, int port);
+    long routingVersion();
+    void onRoutingSnapshot(RoutingSnapshot snapshot);
 }
@@ -0,0 +1,195 @@
+package client;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ClientReactor implements Runnable {
+
+    private static final ThreadLocal<ClientReactor> CURRENT = new ThreadLocal<>();
+
+    private final int id;
+    private final Selector selector;
+    private final ConnectionStats stats;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final Map<Client, SelectionKey> connectionKeys = new IdentityHashMap<>();
+    private final Map<SelectionKey, Long> connectStarts = Maps.newHashMap();
+    private final Map<String, SelectionKey> multiplexedConnections = Maps.newHashMap();
+    private volatile Thread thread;
+
+    ClientReactor(int id, ConnectionStats stats) throws IOException {
+        this.id = id;
+        this.selector = Selector.open();
+        this.stats = stats;
+    }
+
+    static ClientReactor current() {
+        return CURRENT.get();
+    }
+
+    void execute(Runnable task) {
+        if (inReactorThread()) {
+            task.run();
+        } else {
+            tasks.add(task);
+            if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    SelectionKey connect(SocketChannel channel, Client client, String host, int port) throws IOException {
+        SelectionKey selectionKey = channel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ, client);
+        connectionKeys.put(client, selectionKey);
+        connectStarts.put(selectionKey, System.nanoTime());
+        try {
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                finishConnect(selectionKey);
+            }
+        } catch (IOException | RuntimeException e) {
+            close(client);
+            throw e;
+        }
+        return selectionKey;
+    }
+
+    void close(Client client) {
+        SelectionKey selectionKey = connectionKeys.remove(client);
+        if (selectionKey != null) {
+            connectStarts.remove(selectionKey);
+        }
+        client.close();
+    }
+
+    void requestWrite(Client client) {
+        execute(() -> {
+            SelectionKey selectionKey = connectionKeys.get(client);
+            if (selectionKey != null && selectionKey.isValid()) {
+                selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    SelectionKey multiplexedConnection(String address) {
+        SelectionKey selectionKey = multiplexedConnections.get(address);
+        if (selectionKey == null) {
+            return null;
+        }
+        MultiplexedClient client = (MultiplexedClient) selectionKey.attachment();
+        if (client.isClosed()) {
+            multiplexedConnections.remove(address);
+            close(client);
+            return null;
+        }
+        return selectionKey;
+    }
+
+    void addMultiplexedConnection(String address, SelectionKey selectionKey) {
+        multiplexedConnections.put(address, selectionKey);
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        CURRENT.set(this);
+        logger.info("Client reactor {} started", id);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                logger.error("Error while performing select", e);
+            }
+            wakeupPending.set(false);
+            runTasks();
+            processSelectedKeys();
+        }
+        logger.info("Client reactor {} stopped", id);
+    }
+
+    private boolean inReactorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Task failed in client reactor {}", id, e);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+        while (keyIterator.hasNext()) {
+            SelectionKey key = keyIterator.next();
+            keyIterator.remove();
+            Client client = (Client) key.attachment();
+            try {
+                processKey(key, client);
+            } catch (RuntimeException e) {
+                closeFailed(client, e);
+            }
+        }
+    }
+
+    private void processKey(SelectionKey key, Client client) {
+        if (key.isValid() && key.isConnectable()) {
+            finishConnect(key);
+        }
+        if (key.isValid() && key.isReadable()) {
+            client.doRead();
+        }
+        if (key.isValid() && key.isWritable()) {
+            int pendingBytes = client.doWrite();
+            if (pendingBytes == 0 && key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void closeFailed(Client client, RuntimeException e) {
+        logger.error("Unexpected error on client connection in reactor {}. Closing it", id, e);
+        close(client);
+        try {
+            client.onDisconnect();
+        } catch (RuntimeException reconnectError) {
+            logger.error("Error while reconnecting failed client connection", reconnectError);
+        }
+    }
+
+    private void finishConnect(SelectionKey key) {
+        Client client = (Client) key.attachment();
+        Long connectStart = connectStarts.remove(key);
+        try {
+            ((SocketChannel) key.channel()).finishConnect();
+        } catch (IOException e) {
+            logger.error("Connection error. Client will retry.", e);
+            stats.recordConnectFailure();
+            client.onConnectionFail();
+            return;
+        }
+        if (connectStart != null) {
+            stats.recordConnect(System.nanoTime() - connectStart);
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_CONNECT);
+        client.onConnect();
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientReactor.class);
+}
@@ -1,6 +1,14 @@
 package client;
 
+import hashing.RoutingSnapshot;
+
+import java.nio.ByteBuffer;
+
 public interface ClientReaderListener {
-    void onMessage(String message);
+    void onMessage(int clientId, long sequence, ByteBuffer payload);
     void onResolveServer(boolean success, String host, int port);
+    void onSubscribed(int clientId);
+    void onMoved(int clientId, String host, int port);
+    void onUnsubscribed(int clientId);
+    void onRoutingSnapshot(RoutingSnapshot snapshot);
 }
@@ -3,5 +3,7 @@ package client;
 import common.network.Writer;
 
 public interface ClientWriter extends Writer {
-    int resolveServer(int clientId);
+    int resolveServer(int clientId, long knownRoutingVersion, long lastSequence);
+    int subscribe(int clientId, long knownRoutingVersion, long lastSequence);
+    int unsubscribe(int clientId);
 }
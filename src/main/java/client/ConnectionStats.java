@@ -0,0 +1,62 @@
+package client;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionStats {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMicros(10);
+
+    private final Recorder connectLatency = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final Recorder resolveLatency = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final Recorder redirectLatency = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final LongAdder connectFailures = new LongAdder();
+    private Histogram connectHistogram;
+    private Histogram resolveHistogram;
+    private Histogram redirectHistogram;
+
+    public void recordConnect(long nanos) {
+        record(connectLatency, nanos);
+    }
+
+    public void recordConnectFailure() {
+        connectFailures.increment();
+    }
+
+    public void recordResolve(long nanos) {
+        record(resolveLatency, nanos);
+    }
+
+    public void recordRedirect(long nanos) {
+        record(redirectLatency, nanos);
+    }
+
+    public void report(int activeClients) {
+        connectHistogram = connectLatency.getIntervalHistogram(connectHistogram);
+        resolveHistogram = resolveLatency.getIntervalHistogram(resolveHistogram);
+        redirectHistogram = redirectLatency.getIntervalHistogram(redirectHistogram);
+        logger.info("{} active clients, {} connect failures. Connect {}. Resolve {}. Redirect {}", activeClients,
+                connectFailures.sumThenReset(), summary(connectHistogram), summary(resolveHistogram),
+                summary(redirectHistogram));
+    }
+
+    private static void record(Recorder recorder, long nanos) {
+        recorder.recordValue(Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_LATENCY));
+    }
+
+    private static String summary(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "none";
+        }
+        return String.format("%d times: p50 %d us, p99 %d us, p999 %d us, max %d us", histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionStats.class);
+}
@@ -0,0 +1,66 @@
+package client;
+
+import com.google.common.collect.Maps;
+import common.network.DataPayloadCodec;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toMillis(1);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final Map<Integer, Long> lastSequences = Maps.newConcurrentMap();
+    private final LongAdder gaps = new LongAdder();
+    private final LongAdder missing = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private Histogram intervalHistogram;
+
+    public void record(int clientId, ByteBuffer payload) {
+        if (!DataPayloadCodec.isValid(payload)) {
+            malformed.increment();
+            return;
+        }
+        record(clientId, DataPayloadCodec.sequence(payload), DataPayloadCodec.timestamp(payload),
+                System.currentTimeMillis());
+    }
+
+    public void record(int clientId, long sequence, long timestamp, long now) {
+        recorder.recordValue(Math.min(Math.max(0, now - timestamp), HIGHEST_TRACKABLE_LATENCY));
+        Long lastSequence = lastSequences.put(clientId, sequence);
+        if (lastSequence == null) {
+            return;
+        }
+        if (sequence <= lastSequence) {
+            duplicates.increment();
+            lastSequences.put(clientId, lastSequence);
+        } else if (sequence > lastSequence + 1) {
+            gaps.increment();
+            missing.add(sequence - lastSequence - 1);
+        }
+    }
+
+    public void report() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        long count = intervalHistogram.getTotalCount();
+        if (count == 0) {
+            logger.info("Delivery latency: no messages received");
+            return;
+        }
+        logger.info("Delivery latency over {} messages: p50 {} ms, p99 {} ms, p999 {} ms, max {} ms. "
+                        + "Sequence gaps {}, missing {}, duplicates {}, malformed {}", count,
+                intervalHistogram.getValueAtPercentile(50), intervalHistogram.getValueAtPercentile(99),
+                intervalHistogram.getValueAtPercentile(99.9), intervalHistogram.getMaxValue(), gaps.sumThenReset(),
+                missing.sumThenReset(), duplicates.sumThenReset(), malformed.sumThenReset());
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyRecorder.class);
+}
@@ -0,0 +1,32 @@
+package client;
+
+public class LoadSettings {
+
+    private final int selectorsCount;
+    private final int clientsCount;
+    private final int connectRate;
+
+    public LoadSettings(int selectorsCount, int clientsCount, int connectRate) {
+        this.selectorsCount = selectorsCount > 0 ? selectorsCount : Runtime.getRuntime().availableProcessors();
+        this.clientsCount = clientsCount;
+        this.connectRate = connectRate;
+    }
+
+    public int selectorsCount() {
+        return selectorsCount;
+    }
+
+    // number of clients ramped up by the load generator, 0 when clients are spawned randomly
+    public int clientsCount() {
+        return clientsCount;
+    }
+
+    // connects per second while ramping up
+    public int connectRate() {
+        return connectRate;
+    }
+
+    public boolean enabled() {
+        return clientsCount > 0;
+    }
+}
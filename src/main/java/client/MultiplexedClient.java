@@ -0,0 +1,7 @@
+package client;
+
+public interface MultiplexedClient extends Client {
+    void subscribe(int clientId);
+    void unsubscribe(int clientId);
+    boolean isClosed();
+}
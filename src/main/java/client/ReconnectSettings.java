@@ -0,0 +1,28 @@
+package client;
+
+public class ReconnectSettings {
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+
+    public ReconnectSettings(long baseDelay, long maxDelay, int maxAttempts) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // cap of the first reconnect delay, ms. Every further attempt doubles it
+    public long baseDelay() {
+        return baseDelay;
+    }
+
+    public long maxDelay() {
+        return maxDelay;
+    }
+
+    // reconnect attempts without an established connection before the client gives up, 0 means unlimited
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+}
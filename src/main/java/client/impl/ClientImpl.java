@@ -4,13 +4,19 @@ import client.Client;
 import client.ClientContainer;
 import client.ClientReaderListener;
 import client.ClientWriter;
+import common.network.BufferPool;
+import common.network.NetworkSettings;
 import common.network.Reader;
+import common.network.WriteListener;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
-public class ClientImpl implements Client, ClientReaderListener {
+public class ClientImpl implements Client, ClientReaderListener, WriteListener {
     private final int clientId;
     private final Reader reader;
     private final ClientWriter writer;
@@ -18,11 +24,12 @@ public class ClientImpl implements Client, ClientReaderListener {
     private final String host;
     private final int port;
 
-    public ClientImpl(SocketChannel channel, int clientId, String host, int port, ClientContainer container) {
+    public ClientImpl(SocketChannel channel, int clientId, String host, int port, ClientContainer container,
+                      BufferPool bufferPool, NetworkSettings settings, Partitioner partitioner) {
         logger.info("Starting client to listen to {}:{}", host, port);
         this.clientId = clientId;
-        this.reader = new ClientReaderImpl(channel, this);
-        this.writer = new ClientWriterImpl(channel);
+        this.reader = new ClientReaderImpl(channel, this, bufferPool, settings, partitioner);
+        this.writer = new ClientWriterImpl(channel, bufferPool, settings, this);
         this.host = host;
         this.port = port;
         this.container = container;
@@ -31,7 +38,9 @@ public class ClientImpl implements Client, ClientReaderListener {
     @Override
     public void resolveServer() {
         logger.info("Client {} on {}:{} requests resolution", clientId, host, port);
-        handleWriteResult(writer.resolveServer(clientId));
+        container.onResolveRequested(clientId);
+        handleWriteResult(writer.resolveServer(clientId, container.routingVersion(),
+                container.lastSequence(clientId)));
     }
 
     @Override
@@ -43,15 +52,32 @@ public class ClientImpl implements Client, ClientReaderListener {
     @Override
     public void onConnectionFail() {
         logger.info("Client failed to connect to {}:{}", host, port);
+        container.onConnectionFail(host, port);
         container.requestReconnect(clientId);
     }
 
+    @Override
+    public void onDisconnect() {
+        logger.info("Connection of client {} to {}:{} is lost", clientId, host, port);
+        container.requestReconnect(clientId);
+    }
+
+    @Override
+    public void onWritePending() {
+        container.onWritePending(this);
+    }
+
+    @Override
+    public void onWriteSuffer() {
+        logger.warn("Outbound queue of client {} to {}:{} crossed the high watermark", clientId, host, port);
+    }
+
     @Override
     public void doRead() {
         int bytesRead = reader.performRead();
         if (bytesRead == -1) {
             logger.info("Server closed connection of client {}", clientId);
-            container.requestReconnect(clientId);
+            onDisconnect();
         }
     }
 
@@ -60,11 +86,11 @@ public class ClientImpl implements Client, ClientReaderListener {
         return handleWriteResult(writer.performWrite());
     }
 
-    private int handleWriteResult(int writeBytes) {
-        if (writeBytes == 0) {
-            container.onWriteSuffer(this);
+    private int handleWriteResult(int pendingBytes) {
+        if (pendingBytes == -1) {
+            logger.info("Client {} failed to write to {}:{}", clientId, host, port);
         }
-        return writeBytes;
+        return pendingBytes;
     }
 
     @Override
@@ -75,8 +101,33 @@ public class ClientImpl implements Client, ClientReaderListener {
     }
 
     @Override
-    public void onMessage(String message) {
-        logger.info("Client {} received message {}", clientId, message);
+    public void onMessage(int clientId, long sequence, ByteBuffer payload) {
+        container.onMessage(clientId, sequence, payload);
+    }
+
+    @Override
+    public void onSubscribed(int clientId) {
+        logger.warn("Unexpected subscription confirmation for {} on single client connection", clientId);
+    }
+
+    @Override
+    public void onMoved(int clientId, String host, int port) {
+        logger.info("Client {} is moved from {}:{} to {}:{}", clientId, this.host, this.port, host, port);
+        if (host == null) {
+            container.requestReconnect(clientId);
+        } else {
+            container.requestReconnect(clientId, host, port);
+        }
+    }
+
+    @Override
+    public void onUnsubscribed(int clientId) {
+        logger.warn("Unexpected unsubscription of {} on single client connection", clientId);
+    }
+
+    @Override
+    public void onRoutingSnapshot(RoutingSnapshot snapshot) {
+        container.onRoutingSnapshot(snapshot);
     }
 
     @Override
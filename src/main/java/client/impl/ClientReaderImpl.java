@@ -2,49 +2,99 @@ package client.impl;
 
 import client.ClientReaderListener;
 import common.network.AbstractReader;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.RoutingSnapshotCodec;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 
 public class ClientReaderImpl extends AbstractReader {
 
     private final ClientReaderListener listener;
+    private final Partitioner partitioner;
 
-    public ClientReaderImpl(SocketChannel channel, ClientReaderListener listener) {
-        super(channel);
+    public ClientReaderImpl(SocketChannel channel, ClientReaderListener listener, BufferPool bufferPool,
+                            NetworkSettings settings, Partitioner partitioner) {
+        super(channel, bufferPool, settings);
         this.listener = listener;
+        this.partitioner = partitioner;
     }
 
     @Override
-    protected void handleMessage(String type, String message) {
-        switch (type) {
-            case "resolve":
-                handleResolveMessage(message);
+    protected void handleFrame(byte opcode, int field, ByteBuffer payload) {
+        switch (opcode) {
+            case Opcode.RESOLUTION:
+                handleResolution(field, payload);
                 break;
-            case "data":
-                handleDataMesasge(message);
+            case Opcode.UNKNOWN_RESOLUTION:
+                logger.info("Received unknown resolution for client {}", field);
+                listener.onResolveServer(false, null, 0);
+                break;
+            case Opcode.DATA:
+                handleData(field, payload);
+                break;
+            case Opcode.SUBSCRIBED:
+                listener.onSubscribed(field);
+                break;
+            case Opcode.MOVED:
+                handleMoved(field, payload);
+                break;
+            case Opcode.UNSUBSCRIBE:
+                listener.onUnsubscribed(field);
+                break;
+            case Opcode.ROUTING:
+                handleRoutingSnapshot(payload);
                 break;
             default:
-                logger.error("Unknown message type {}", type);
+                logger.error("Unknown frame opcode {}", opcode);
         }
     }
 
-    private void handleResolveMessage(String resolveMessage) {
-        logger.info("Received resolve message {}", resolveMessage);
-        if (resolveMessage.equals("unknown")) {
-            listener.onResolveServer(false, null, 0);
-        } else {
-            String[] parts = resolveMessage.split(":");
-            String host = parts[0];
-            int port = Integer.parseInt(parts[1]);
-            listener.onResolveServer(true, host, port);
+    private void handleResolution(int port, ByteBuffer hostBytes) {
+        String host = StandardCharsets.US_ASCII.decode(hostBytes).toString();
+        logger.info("Received resolution {}:{}", host, port);
+        listener.onResolveServer(true, host, port);
+    }
+
+    private void handleData(int clientId, ByteBuffer payload) {
+        if (payload.remaining() < FrameCodec.SEQUENCE_SIZE) {
+            logger.error("Received data frame without sequence for client {}", clientId);
+            return;
         }
+        long sequence = payload.getLong();
+        listener.onMessage(clientId, sequence, payload);
     }
 
-    private void handleDataMesasge(String dataMessage) {
-        logger.info("Received data message {}", dataMessage);
-        listener.onMessage(dataMessage);
+    private void handleRoutingSnapshot(ByteBuffer payload) {
+        RoutingSnapshot snapshot;
+        try {
+            snapshot = RoutingSnapshotCodec.decode(payload, partitioner);
+        } catch (IllegalArgumentException e) {
+            logger.error("Ignoring malformed routing snapshot: {}", e.getMessage());
+            return;
+        }
+        logger.info("Received routing snapshot version {}", snapshot.version());
+        listener.onRoutingSnapshot(snapshot);
+    }
+
+    private void handleMoved(int clientId, ByteBuffer payload) {
+        if (payload.remaining() < 4) {
+            logger.info("Received moved info with unknown owner for client {}", clientId);
+            listener.onMoved(clientId, null, 0);
+            return;
+        }
+        int port = payload.getInt();
+        String host = StandardCharsets.US_ASCII.decode(payload).toString();
+        logger.info("Received moved info for client {}: {}:{}", clientId, host, port);
+        listener.onMoved(clientId, host, port);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ClientReaderImpl.class);
@@ -2,17 +2,25 @@ package client.impl;
 
 import client.ClientWriter;
 import common.network.BasicWriter;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.WriteListener;
+import hashing.RoutingSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 public class ClientWriterImpl implements ClientWriter {
 
     private final BasicWriter writer;
 
-    public ClientWriterImpl(SocketChannel channel) {
-        writer = new BasicWriter(channel);
+    public ClientWriterImpl(SocketChannel channel, BufferPool bufferPool, NetworkSettings settings,
+                            WriteListener listener) {
+        writer = new BasicWriter(channel, bufferPool, settings, listener);
     }
 
     @Override
@@ -21,6 +29,11 @@ public class ClientWriterImpl implements ClientWriter {
         return writer.performWrite();
     }
 
+    @Override
+    public int pendingBytes() {
+        return writer.pendingBytes();
+    }
+
     @Override
     public void close() {
         logger.info("Request to close writer");
@@ -28,9 +41,33 @@ public class ClientWriterImpl implements ClientWriter {
     }
 
     @Override
-    public int resolveServer(int clientId) {
+    public int resolveServer(int clientId, long knownRoutingVersion, long lastSequence) {
         logger.info("Request to send resolve message");
-        return writer.writeMessage("resolve", String.valueOf(clientId));
+        return writeResumable(Opcode.RESOLVE, clientId, knownRoutingVersion, lastSequence);
+    }
+
+    @Override
+    public int subscribe(int clientId, long knownRoutingVersion, long lastSequence) {
+        logger.info("Request to send subscribe message for client {}", clientId);
+        return writeResumable(Opcode.SUBSCRIBE, clientId, knownRoutingVersion, lastSequence);
+    }
+
+    @Override
+    public int unsubscribe(int clientId) {
+        logger.info("Request to send unsubscribe message for client {}", clientId);
+        return writer.writeFrame(Opcode.UNSUBSCRIBE, clientId);
+    }
+
+    private int writeResumable(byte opcode, int clientId, long knownRoutingVersion, long lastSequence) {
+        if (lastSequence != FrameCodec.NO_SEQUENCE) {
+            ByteBuffer payload = ByteBuffer.allocate(16);
+            payload.putLong(0, knownRoutingVersion).putLong(8, lastSequence);
+            return writer.writeFrame(opcode, clientId, payload);
+        }
+        if (knownRoutingVersion == RoutingSnapshot.NOT_REQUESTED) {
+            return writer.writeFrame(opcode, clientId);
+        }
+        return writer.writeFrame(opcode, clientId, ByteBuffer.allocate(8).putLong(0, knownRoutingVersion));
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ClientWriterImpl.class);
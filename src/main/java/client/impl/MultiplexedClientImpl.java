@@ -0,0 +1,178 @@
+package client.impl;
+
+import client.ClientContainer;
+import client.ClientWriter;
+import client.MultiplexedClient;
+import common.collections.IntHashSet;
+import common.network.BufferPool;
+import common.network.NetworkSettings;
+import common.network.Reader;
+import common.network.WriteListener;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+public class MultiplexedClientImpl implements MultiplexedClient, WriteListener {
+    private final Reader reader;
+    private final ClientWriter writer;
+    private final ClientContainer container;
+    private final String host;
+    private final int port;
+    private final IntHashSet clientIds = new IntHashSet();
+    private boolean connected;
+    private boolean closed;
+
+    public MultiplexedClientImpl(SocketChannel channel, String host, int port, ClientContainer container,
+                                 BufferPool bufferPool, NetworkSettings settings, Partitioner partitioner) {
+        logger.info("Starting multiplexed connection to {}:{}", host, port);
+        this.reader = new ClientReaderImpl(channel, this, bufferPool, settings, partitioner);
+        this.writer = new ClientWriterImpl(channel, bufferPool, settings, this);
+        this.host = host;
+        this.port = port;
+        this.container = container;
+    }
+
+    @Override
+    public void subscribe(int clientId) {
+        if (clientIds.add(clientId) && connected) {
+            container.onResolveRequested(clientId);
+            handleWriteResult(writer.subscribe(clientId, container.routingVersion(),
+                    container.lastSequence(clientId)));
+        }
+    }
+
+    @Override
+    public void unsubscribe(int clientId) {
+        if (clientIds.remove(clientId) && connected) {
+            handleWriteResult(writer.unsubscribe(clientId));
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void resolveServer() {
+        logger.info("Subscribing {} clients on {}:{}", clientIds.size(), host, port);
+        long routingVersion = container.routingVersion();
+        for (int clientId : clientIds.toArray()) {
+            container.onResolveRequested(clientId);
+            handleWriteResult(writer.subscribe(clientId, routingVersion, container.lastSequence(clientId)));
+        }
+    }
+
+    @Override
+    public void onConnect() {
+        logger.info("Multiplexed connection established to {}:{}", host, port);
+        connected = true;
+        resolveServer();
+    }
+
+    @Override
+    public void onConnectionFail() {
+        logger.info("Multiplexed connection failed to {}:{}", host, port);
+        container.onConnectionFail(host, port);
+        reconnectAll();
+    }
+
+    @Override
+    public void onDisconnect() {
+        logger.info("Multiplexed connection to {}:{} is lost", host, port);
+        reconnectAll();
+    }
+
+    @Override
+    public void onWritePending() {
+        container.onWritePending(this);
+    }
+
+    @Override
+    public void onWriteSuffer() {
+        logger.warn("Outbound queue of multiplexed connection to {}:{} crossed the high watermark", host, port);
+    }
+
+    @Override
+    public void doRead() {
+        if (reader.performRead() == -1) {
+            logger.info("Server {}:{} closed multiplexed connection", host, port);
+            onDisconnect();
+        }
+    }
+
+    @Override
+    public int doWrite() {
+        return handleWriteResult(writer.performWrite());
+    }
+
+    @Override
+    public void close() {
+        logger.info("Request to close multiplexed connection to {}:{}", host, port);
+        closed = true;
+        connected = false;
+        writer.close();
+        reader.close();
+    }
+
+    @Override
+    public void onMessage(int clientId, long sequence, ByteBuffer payload) {
+        container.onMessage(clientId, sequence, payload);
+    }
+
+    @Override
+    public void onResolveServer(boolean success, String host, int port) {
+        logger.warn("Unexpected resolution info on multiplexed connection");
+    }
+
+    @Override
+    public void onSubscribed(int clientId) {
+        logger.info("Client {} subscribed on {}:{}", clientId, host, port);
+        container.onConnectionEstablished(clientId);
+    }
+
+    @Override
+    public void onMoved(int clientId, String host, int port) {
+        clientIds.remove(clientId);
+        if (host == null) {
+            container.requestReconnect(clientId);
+        } else {
+            container.requestReconnect(clientId, host, port);
+        }
+    }
+
+    @Override
+    public void onUnsubscribed(int clientId) {
+        logger.info("Server dropped subscription of client {}", clientId);
+        if (clientIds.remove(clientId)) {
+            container.requestReconnect(clientId);
+        }
+    }
+
+    @Override
+    public void onRoutingSnapshot(RoutingSnapshot snapshot) {
+        container.onRoutingSnapshot(snapshot);
+    }
+
+    private void reconnectAll() {
+        int[] subscribed = clientIds.toArray();
+        close();
+        clientIds.clear();
+        for (int clientId : subscribed) {
+            container.requestReconnect(clientId);
+        }
+    }
+
+    private int handleWriteResult(int pendingBytes) {
+        if (pendingBytes == -1) {
+            logger.info("Failed to write to {}:{}", host, port);
+        }
+        return pendingBytes;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedClientImpl.class);
+}
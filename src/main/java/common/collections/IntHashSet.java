@@ -0,0 +1,131 @@
+package common.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+public class IntHashSet {
+
+    public static final int MISSING_VALUE = Integer.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        int index = hash(value);
+        while (values[index] != MISSING_VALUE) {
+            if (values[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean add(int value) {
+        Preconditions.checkArgument(value != MISSING_VALUE, "Value %s is reserved", value);
+        int index = hash(value);
+        while (values[index] != MISSING_VALUE) {
+            if (values[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        values[index] = value;
+        if (++size > values.length * LOAD_FACTOR) {
+            rehash(values.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = hash(value);
+        while (values[index] != MISSING_VALUE) {
+            if (values[index] == value) {
+                values[index] = MISSING_VALUE;
+                size--;
+                compactChain(index);
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int position = 0;
+        for (int value : values) {
+            if (value != MISSING_VALUE) {
+                result[position++] = value;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(values, MISSING_VALUE);
+        size = 0;
+    }
+
+    private void compactChain(int deletedIndex) {
+        int index = (deletedIndex + 1) & mask;
+        while (values[index] != MISSING_VALUE) {
+            int value = values[index];
+            int home = hash(value);
+            if (((index - home) & mask) >= ((index - deletedIndex) & mask)) {
+                values[deletedIndex] = value;
+                values[index] = MISSING_VALUE;
+                deletedIndex = index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int value : oldValues) {
+            if (value != MISSING_VALUE) {
+                add(value);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        values = new int[capacity];
+        Arrays.fill(values, MISSING_VALUE);
+        mask = capacity - 1;
+    }
+
+    private int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,125 @@
+package common.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+public class IntLongHashMap {
+
+    public static final int MISSING_KEY = Integer.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final long missingValue;
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public IntLongHashMap(long missingValue) {
+        this(8, missingValue);
+    }
+
+    public IntLongHashMap(int expectedSize, long missingValue) {
+        this.missingValue = missingValue;
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int key) {
+        int index = hash(key);
+        while (keys[index] != MISSING_KEY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public long put(int key, long value) {
+        Preconditions.checkArgument(key != MISSING_KEY, "Key %s is reserved", key);
+        int index = hash(key);
+        while (keys[index] != MISSING_KEY) {
+            if (keys[index] == key) {
+                long previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    public long remove(int key) {
+        int index = hash(key);
+        while (keys[index] != MISSING_KEY) {
+            if (keys[index] == key) {
+                long previous = values[index];
+                keys[index] = MISSING_KEY;
+                size--;
+                compactChain(index);
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, MISSING_KEY);
+        size = 0;
+    }
+
+    private void compactChain(int deletedIndex) {
+        int index = (deletedIndex + 1) & mask;
+        while (keys[index] != MISSING_KEY) {
+            int key = keys[index];
+            int home = hash(key);
+            if (((index - home) & mask) >= ((index - deletedIndex) & mask)) {
+                keys[deletedIndex] = key;
+                values[deletedIndex] = values[index];
+                keys[index] = MISSING_KEY;
+                deletedIndex = index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != MISSING_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, MISSING_KEY);
+        mask = capacity - 1;
+    }
+
+    private int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
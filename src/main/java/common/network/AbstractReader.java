@@ -5,55 +5,124 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.ReadableByteChannel;
 
 public abstract class AbstractReader implements Reader {
 
-    private final SocketChannel channel;
-    private final ByteBuffer buffer = ByteBuffer.allocate(100);
+    private final ReadableByteChannel channel;
+    private final BufferPool bufferPool;
+    private final int bufferCapacity;
+    private final int maxFrameSize;
+    private ByteBuffer buffer;
 
-    protected AbstractReader(SocketChannel channel) {
+    protected AbstractReader(ReadableByteChannel channel, BufferPool bufferPool, NetworkSettings settings) {
         this.channel = channel;
-        buffer.clear();
+        this.bufferPool = bufferPool;
+        this.maxFrameSize = settings.maxFrameSize();
+        this.buffer = bufferPool.acquire(settings.bufferSize());
+        this.bufferCapacity = buffer.capacity();
     }
 
     @Override
-    public int performRead() {
+    public synchronized int performRead() {
+        if (buffer == null) {
+            return -1;
+        }
         int bytesRead = 0;
         try {
-            bytesRead = channel.read(buffer);
-        } catch (IOException e) {
-            logger.error("Unexpected error while writing buffer to channel. It should be already connected", e);
-        }
-        if (buffer.position() > 4) {
-            buffer.mark();
-            int messageLen = buffer.getInt(0);
-            if (buffer.position() >= messageLen + 4) {
-                buffer.flip();
-                buffer.getInt();
-                String message = new String(buffer.array(), buffer.position(), messageLen);
-                buffer.position(buffer.position() + messageLen);
-                buffer.compact();
-                String[] parts = message.split("\\|");
-                String type = parts[0];
-                String dataMessage = parts[1];
-                handleMessage(type, dataMessage);
+            while (true) {
+                int readCount = channel.read(buffer);
+                if (readCount == -1) {
+                    return -1;
+                }
+                bytesRead += readCount;
+                boolean bufferFilled = !buffer.hasRemaining();
+                if (!decodeFrames()) {
+                    return -1;
+                }
+                if (buffer == null || readCount == 0 || !bufferFilled) {
+                    break;
+                }
             }
+        } catch (IOException e) {
+            logger.error("Error while reading from channel. Connection is considered closed", e);
+            return -1;
         }
         return bytesRead;
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         logger.info("Request to close channel");
         try {
             channel.close();
         } catch (IOException e) {
             logger.error("IO error while closing channel", e);
         }
+        if (buffer != null) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private boolean decodeFrames() {
+        buffer.flip();
+        int pendingFrameSize = 0;
+        while (buffer.remaining() >= FrameCodec.LENGTH_SIZE) {
+            int frameLength = FrameCodec.frameLength(buffer);
+            if (frameLength < FrameCodec.HEADER_SIZE || frameLength > maxFrameSize - FrameCodec.LENGTH_SIZE) {
+                logger.error("Invalid frame length {}. Max frame size is {}", frameLength, maxFrameSize);
+                buffer.clear();
+                return false;
+            }
+            int frameSize = FrameCodec.LENGTH_SIZE + frameLength;
+            if (buffer.remaining() < frameSize) {
+                pendingFrameSize = frameSize;
+                break;
+            }
+            decodeFrame(buffer.position() + frameSize);
+            if (buffer == null) {
+                return true;
+            }
+        }
+        buffer.compact();
+        resizeBuffer(pendingFrameSize);
+        return true;
+    }
+
+    private void decodeFrame(int frameEnd) {
+        int limit = buffer.limit();
+        byte version = FrameCodec.version(buffer);
+        byte opcode = FrameCodec.opcode(buffer);
+        int field = FrameCodec.field(buffer);
+        if (version != FrameCodec.PROTOCOL_VERSION) {
+            logger.error("Skipping frame with unsupported protocol version {}", version);
+            buffer.position(frameEnd);
+            return;
+        }
+        buffer.position(buffer.position() + FrameCodec.LENGTH_SIZE + FrameCodec.HEADER_SIZE);
+        buffer.limit(frameEnd);
+        handleFrame(opcode, field, buffer);
+        // a handler may close this reader, which hands the buffer back to the pool
+        if (buffer != null) {
+            buffer.limit(limit);
+            buffer.position(frameEnd);
+        }
+    }
+
+    private void resizeBuffer(int pendingFrameSize) {
+        boolean grow = pendingFrameSize > buffer.capacity();
+        boolean shrink = buffer.position() == 0 && buffer.capacity() > bufferCapacity;
+        if (grow || shrink) {
+            ByteBuffer resized = bufferPool.acquire(Math.max(pendingFrameSize, bufferCapacity));
+            buffer.flip();
+            resized.put(buffer);
+            bufferPool.release(buffer);
+            buffer = resized;
+        }
     }
 
-    protected abstract void handleMessage(String type, String message);
+    protected abstract void handleFrame(byte opcode, int field, ByteBuffer payload);
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractReader.class);
 }
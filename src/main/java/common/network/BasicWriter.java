@@ -1,49 +1,82 @@
 package common.network;
 
-import client.impl.ClientWriterImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 
 public class BasicWriter implements Writer {
 
-    private final ByteBuffer buffer = ByteBuffer.allocate(100);
-    private final SocketChannel channel;
-    private int bytesToSend = 0;
+    private static final int GATHER_SIZE = 16;
+
+    private final GatheringByteChannel channel;
+    private final BufferPool bufferPool;
+    private final WriteListener listener;
+    private final int maxFrameSize;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Deque<ByteBuffer> queue = new ArrayDeque<>();
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[GATHER_SIZE];
+    private long queuedBytes;
+    private boolean writable = true;
+    private boolean writePending;
+    private boolean closed;
 
     private final Object lock = new Object();
 
-    public BasicWriter(SocketChannel channel) {
+    public BasicWriter(GatheringByteChannel channel, BufferPool bufferPool, NetworkSettings settings, WriteListener listener) {
         this.channel = channel;
-        buffer.clear();
+        this.bufferPool = bufferPool;
+        this.listener = listener;
+        this.maxFrameSize = settings.maxFrameSize();
+        this.highWatermark = settings.highWatermark();
+        this.lowWatermark = settings.lowWatermark();
+        this.overflowPolicy = settings.overflowPolicy();
     }
 
     @Override
     public int performWrite() {
+        boolean notifyWriteSuffer;
+        int pendingBytes;
         synchronized (lock) {
-            int bytesWrite = -1;
+            if (closed) {
+                return -1;
+            }
             try {
-                while (buffer.hasRemaining() && bytesToSend > 0) {
-                    bytesWrite = channel.write(buffer);
-                    bytesToSend -= bytesWrite;
-                    if (bytesWrite == 0) {
-                        break;
-                    }
-                }
-                buffer.compact();
+                notifyWriteSuffer = flush();
             } catch (IOException e) {
                 logger.error("Unexpected error while writing buffer to channel. It should be already connected", e);
+                return -1;
             }
-            return bytesWrite;
+            if (queue.isEmpty()) {
+                writePending = false;
+            }
+            pendingBytes = (int) Math.min(queuedBytes, Integer.MAX_VALUE);
+        }
+        if (notifyWriteSuffer) {
+            listener.onWriteSuffer();
         }
+        return pendingBytes;
     }
 
     @Override
     public void close() {
         logger.info("Request to close channel");
+        synchronized (lock) {
+            closed = true;
+            while (!queue.isEmpty()) {
+                bufferPool.release(queue.poll());
+            }
+            queuedBytes = 0;
+        }
         try {
             channel.close();
         } catch (IOException e) {
@@ -51,17 +84,185 @@ public class BasicWriter implements Writer {
         }
     }
 
-    public int writeMessage(String type, String message) {
-        String messageToSend = type + "|" + message;
-        byte[] messageBytes = messageToSend.getBytes();
+    public int writeFrame(byte opcode, int field) {
+        ByteBuffer frame = acquireFrame(FrameCodec.frameSize(0));
+        if (frame == null) {
+            return pendingBytes();
+        }
+        FrameCodec.encode(frame, opcode, field);
+        frame.flip();
+        return writeEncodedFrame(frame);
+    }
+
+    public int writeFrame(byte opcode, int field, byte[] payload) {
+        ByteBuffer frame = acquireFrame(FrameCodec.frameSize(payload.length));
+        if (frame == null) {
+            return pendingBytes();
+        }
+        FrameCodec.encode(frame, opcode, field, payload);
+        frame.flip();
+        return writeEncodedFrame(frame);
+    }
+
+    public int writeFrame(byte opcode, int field, ByteBuffer payload) {
+        ByteBuffer frame = acquireFrame(FrameCodec.frameSize(payload.remaining()));
+        if (frame == null) {
+            return pendingBytes();
+        }
+        FrameCodec.encode(frame, opcode, field, payload);
+        frame.flip();
+        return writeEncodedFrame(frame);
+    }
+
+    public int writeDataFrame(int clientId, long sequence, ByteBuffer payload) {
+        ByteBuffer frame = acquireFrame(FrameCodec.dataFrameSize(payload.remaining()));
+        if (frame == null) {
+            return pendingBytes();
+        }
+        FrameCodec.encodeData(frame, clientId, sequence, payload);
+        frame.flip();
+        return writeEncodedFrame(frame);
+    }
+
+    public int queueEncodedFrame(ByteBuffer frame) {
+        synchronized (lock) {
+            if (!addToQueue(frame)) {
+                return -1;
+            }
+            return (int) Math.min(queuedBytes, Integer.MAX_VALUE);
+        }
+    }
+
+    public int writeEncodedFrame(ByteBuffer frame) {
+        boolean notifyWriteSuffer = false;
+        boolean notifyWritePending = false;
+        int pendingBytes;
+        synchronized (lock) {
+            if (!addToQueue(frame)) {
+                return -1;
+            }
+            if (writable) {
+                try {
+                    notifyWriteSuffer = flush();
+                } catch (IOException e) {
+                    logger.error("Unexpected error while writing buffer to channel. It should be already connected", e);
+                    return -1;
+                }
+            }
+            if (!queue.isEmpty() && !writePending) {
+                writePending = true;
+                notifyWritePending = true;
+            }
+            pendingBytes = (int) Math.min(queuedBytes, Integer.MAX_VALUE);
+        }
+        if (notifyWriteSuffer) {
+            listener.onWriteSuffer();
+        }
+        if (notifyWritePending) {
+            listener.onWritePending();
+        }
+        return pendingBytes;
+    }
+
+    private boolean addToQueue(ByteBuffer frame) {
+        if (closed) {
+            bufferPool.release(frame);
+            return false;
+        }
+        if (!writable && !applyOverflowPolicy(frame)) {
+            logger.warn("Outbound queue of {} bytes overflowed. Connection will be closed", queuedBytes);
+            bufferPool.release(frame);
+            return false;
+        }
+        queue.add(frame);
+        queuedBytes += frame.remaining();
+        return true;
+    }
+
+    private ByteBuffer acquireFrame(int frameSize) {
+        if (frameSize > maxFrameSize) {
+            logger.error("Dropping frame of {} bytes. Max frame size is {}", frameSize, maxFrameSize);
+            return null;
+        }
+        return bufferPool.acquire(frameSize);
+    }
+
+    private boolean applyOverflowPolicy(ByteBuffer frame) {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                Iterator<ByteBuffer> oldest = queue.iterator();
+                while (oldest.hasNext() && queuedBytes + frame.remaining() > highWatermark) {
+                    dropIfUnsentData(oldest, oldest.next());
+                }
+                return true;
+            case COALESCE:
+                if (FrameCodec.opcode(frame) == Opcode.DATA) {
+                    int field = FrameCodec.field(frame);
+                    Iterator<ByteBuffer> queued = queue.iterator();
+                    while (queued.hasNext()) {
+                        ByteBuffer queuedFrame = queued.next();
+                        if (FrameCodec.field(queuedFrame) == field) {
+                            dropIfUnsentData(queued, queuedFrame);
+                        }
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void dropIfUnsentData(Iterator<ByteBuffer> iterator, ByteBuffer frame) {
+        if (frame.position() == 0 && FrameCodec.opcode(frame) == Opcode.DATA) {
+            iterator.remove();
+            queuedBytes -= frame.remaining();
+            bufferPool.release(frame);
+        }
+    }
+
+    // returns true if the queue crossed the high watermark
+    private boolean flush() throws IOException {
+        while (!queue.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer frame : queue) {
+                gatherBuffers[count++] = frame;
+                if (count == GATHER_SIZE) {
+                    break;
+                }
+            }
+            long bytesWrite = channel.write(gatherBuffers, 0, count);
+            queuedBytes -= bytesWrite;
+            boolean allWritten = !gatherBuffers[count - 1].hasRemaining();
+            Arrays.fill(gatherBuffers, 0, count, null);
+            while (!queue.isEmpty() && !queue.peek().hasRemaining()) {
+                bufferPool.release(queue.poll());
+            }
+            if (!allWritten) {
+                break;
+            }
+        }
+        return updateWritability();
+    }
+
+    private boolean updateWritability() {
+        if (writable && queuedBytes >= highWatermark) {
+            logger.info("Outbound queue reached high watermark of {} bytes", highWatermark);
+            writable = false;
+            return true;
+        }
+        if (!writable && queuedBytes <= lowWatermark) {
+            logger.info("Outbound queue drained below low watermark of {} bytes", lowWatermark);
+            writable = true;
+        }
+        return false;
+    }
+
+    @Override
+    public int pendingBytes() {
         synchronized (lock) {
-            buffer.putInt(messageBytes.length);
-            buffer.put(messageBytes);
-            buffer.flip();
-            bytesToSend += messageBytes.length + 4;
+            return closed ? -1 : (int) Math.min(queuedBytes, Integer.MAX_VALUE);
         }
-        return performWrite();
     }
 
-    private static final Logger logger = LoggerFactory.getLogger(ClientWriterImpl.class);
+    private static final Logger logger = LoggerFactory.getLogger(BasicWriter.class);
 }
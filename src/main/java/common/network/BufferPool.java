@@ -0,0 +1,71 @@
+package common.network;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class BufferPool {
+
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private final List<Queue<ByteBuffer>> pools;
+    private final AtomicIntegerArray pooledCounts;
+    private final int maxPooledPerSize;
+    private final int maxBufferSize;
+
+    public BufferPool(int maxBufferSize, int maxPooledPerSize) {
+        this.maxBufferSize = roundUp(maxBufferSize);
+        this.maxPooledPerSize = maxPooledPerSize;
+        int sizesCount = sizeIndex(this.maxBufferSize) + 1;
+        this.pools = Lists.newArrayListWithCapacity(sizesCount);
+        for (int i = 0; i < sizesCount; i++) {
+            pools.add(new ConcurrentLinkedQueue<>());
+        }
+        this.pooledCounts = new AtomicIntegerArray(sizesCount);
+    }
+
+    public BufferPool(NetworkSettings settings) {
+        this(settings.maxFrameSize(), settings.pooledBuffersPerSize());
+    }
+
+    public ByteBuffer acquire(int size) {
+        Preconditions.checkArgument(size <= maxBufferSize, "Requested buffer of %s bytes exceeds %s", size, maxBufferSize);
+        int index = sizeIndex(roundUp(size));
+        ByteBuffer buffer = pools.get(index).poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(MIN_BUFFER_SIZE << index);
+        }
+        pooledCounts.decrementAndGet(index);
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1 || capacity < MIN_BUFFER_SIZE || capacity > maxBufferSize) {
+            return;
+        }
+        int index = sizeIndex(capacity);
+        if (pooledCounts.incrementAndGet(index) > maxPooledPerSize) {
+            pooledCounts.decrementAndGet(index);
+            return;
+        }
+        pools.get(index).offer(buffer);
+    }
+
+    private static int roundUp(int size) {
+        if (size <= MIN_BUFFER_SIZE) {
+            return MIN_BUFFER_SIZE;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int sizeIndex(int roundedSize) {
+        return Integer.numberOfTrailingZeros(roundedSize) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+}
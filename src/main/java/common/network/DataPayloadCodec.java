@@ -0,0 +1,37 @@
+package common.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Payload of test messages: [long sequence][long timestamp millis][int value]. Written by the producer as the
+ * Kafka record value and relayed by servers into DATA frames untouched.
+ */
+public final class DataPayloadCodec {
+
+    public static final int SIZE = 8 + 8 + 4;
+
+    private DataPayloadCodec() {
+    }
+
+    public static byte[] encode(long sequence, long timestamp, int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putLong(sequence).putLong(timestamp).putInt(value);
+        return buffer.array();
+    }
+
+    public static boolean isValid(ByteBuffer payload) {
+        return payload.remaining() >= SIZE;
+    }
+
+    public static long sequence(ByteBuffer payload) {
+        return payload.getLong(payload.position());
+    }
+
+    public static long timestamp(ByteBuffer payload) {
+        return payload.getLong(payload.position() + 8);
+    }
+
+    public static int value(ByteBuffer payload) {
+        return payload.getInt(payload.position() + 16);
+    }
+}
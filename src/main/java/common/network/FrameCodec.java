@@ -0,0 +1,77 @@
+package common.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame layout: [int length][byte version][byte opcode][int field][payload bytes].
+ * Length covers everything after the length prefix. DATA frames carry [long sequence] in front of the message.
+ */
+public final class FrameCodec {
+    public static final byte PROTOCOL_VERSION = 1;
+    public static final int LENGTH_SIZE = 4;
+    public static final int HEADER_SIZE = 1 + 1 + 4;
+    public static final int SEQUENCE_SIZE = 8;
+    public static final long NO_SEQUENCE = -1;
+
+    private static final int VERSION_OFFSET = LENGTH_SIZE;
+    private static final int OPCODE_OFFSET = VERSION_OFFSET + 1;
+    private static final int FIELD_OFFSET = OPCODE_OFFSET + 1;
+
+    private FrameCodec() {
+    }
+
+    public static int frameSize(int payloadSize) {
+        return LENGTH_SIZE + HEADER_SIZE + payloadSize;
+    }
+
+    public static void encode(ByteBuffer dst, byte opcode, int field) {
+        putHeader(dst, opcode, field, 0);
+    }
+
+    public static void encode(ByteBuffer dst, byte opcode, int field, byte[] payload) {
+        putHeader(dst, opcode, field, payload.length);
+        dst.put(payload);
+    }
+
+    public static void encode(ByteBuffer dst, byte opcode, int field, ByteBuffer payload) {
+        int payloadPosition = payload.position();
+        putHeader(dst, opcode, field, payload.remaining());
+        dst.put(payload);
+        payload.position(payloadPosition);
+    }
+
+    public static int dataFrameSize(int payloadSize) {
+        return frameSize(SEQUENCE_SIZE + payloadSize);
+    }
+
+    public static void encodeData(ByteBuffer dst, int clientId, long sequence, ByteBuffer payload) {
+        int payloadPosition = payload.position();
+        putHeader(dst, Opcode.DATA, clientId, SEQUENCE_SIZE + payload.remaining());
+        dst.putLong(sequence);
+        dst.put(payload);
+        payload.position(payloadPosition);
+    }
+
+    public static int frameLength(ByteBuffer src) {
+        return src.getInt(src.position());
+    }
+
+    public static byte version(ByteBuffer src) {
+        return src.get(src.position() + VERSION_OFFSET);
+    }
+
+    public static byte opcode(ByteBuffer src) {
+        return src.get(src.position() + OPCODE_OFFSET);
+    }
+
+    public static int field(ByteBuffer src) {
+        return src.getInt(src.position() + FIELD_OFFSET);
+    }
+
+    private static void putHeader(ByteBuffer dst, byte opcode, int field, int payloadSize) {
+        dst.putInt(HEADER_SIZE + payloadSize);
+        dst.put(PROTOCOL_VERSION);
+        dst.put(opcode);
+        dst.putInt(field);
+    }
+}
@@ -0,0 +1,66 @@
+package common.network;
+
+public class NetworkSettings {
+
+    private final int bufferSize;
+    private final int maxFrameSize;
+    private final int pooledBuffersPerSize;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    public NetworkSettings(int bufferSize, int maxFrameSize, int pooledBuffersPerSize, int highWatermark,
+                           int lowWatermark, OverflowPolicy overflowPolicy, boolean tcpNoDelay, int sendBufferSize,
+                           int receiveBufferSize) {
+        this.bufferSize = bufferSize;
+        this.maxFrameSize = maxFrameSize;
+        this.pooledBuffersPerSize = pooledBuffersPerSize;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.overflowPolicy = overflowPolicy;
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public int maxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public int pooledBuffersPerSize() {
+        return pooledBuffersPerSize;
+    }
+
+    public int highWatermark() {
+        return highWatermark;
+    }
+
+    public int lowWatermark() {
+        return lowWatermark;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public boolean tcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    // SO_SNDBUF of every socket, 0 keeps the OS default
+    public int sendBufferSize() {
+        return sendBufferSize;
+    }
+
+    // SO_RCVBUF of every socket, 0 keeps the OS default
+    public int receiveBufferSize() {
+        return receiveBufferSize;
+    }
+}
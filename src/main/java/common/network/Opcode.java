@@ -0,0 +1,16 @@
+package common.network;
+
+public final class Opcode {
+    public static final byte RESOLVE = 1;
+    public static final byte RESOLUTION = 2;
+    public static final byte UNKNOWN_RESOLUTION = 3;
+    public static final byte DATA = 4;
+    public static final byte ROUTING = 5;
+    public static final byte SUBSCRIBE = 6;
+    public static final byte SUBSCRIBED = 7;
+    public static final byte MOVED = 8;
+    public static final byte UNSUBSCRIBE = 9;
+
+    private Opcode() {
+    }
+}
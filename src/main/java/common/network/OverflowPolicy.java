@@ -0,0 +1,9 @@
+package common.network;
+
+public enum OverflowPolicy {
+    DROP_OLDEST, COALESCE, DISCONNECT;
+
+    public static OverflowPolicy fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
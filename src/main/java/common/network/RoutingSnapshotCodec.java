@@ -0,0 +1,90 @@
+package common.network;
+
+import com.google.common.base.Preconditions;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
+import hashing.RoutingTable;
+import hashing.impl.RoutingSnapshotImpl;
+import hashing.impl.RoutingTableImpl;
+import model.Node;
+import model.impl.NodeImpl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot layout: [long version][int partitions][int owner]*partitions
+ * [int nodes]([int id][int port][unsigned short host length][ascii host])*nodes.
+ */
+public final class RoutingSnapshotCodec {
+
+    private static final int MAX_HOST_LENGTH = 0xFFFF;
+    private static final int NODE_HEADER_SIZE = 4 + 4 + 2;
+
+    private RoutingSnapshotCodec() {
+    }
+
+    public static RoutingSnapshot snapshot(long version, RoutingTable routingTable, Map<Integer, ? extends Node> nodes) {
+        int partitionsCount = routingTable.partitionsCount();
+        int size = 8 + 4 + 4 * partitionsCount + 4;
+        for (Node node : nodes.values()) {
+            int hostLength = node.host().getBytes(StandardCharsets.US_ASCII).length;
+            Preconditions.checkArgument(hostLength <= MAX_HOST_LENGTH, "Host of node %s is too long", node.id());
+            size += NODE_HEADER_SIZE + hostLength;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(version);
+        buffer.putInt(partitionsCount);
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            buffer.putInt(routingTable.owner(partition));
+        }
+        buffer.putInt(nodes.size());
+        for (Node node : nodes.values()) {
+            byte[] host = node.host().getBytes(StandardCharsets.US_ASCII);
+            buffer.putInt(node.id());
+            buffer.putInt(node.port());
+            buffer.putShort((short) host.length);
+            buffer.put(host);
+        }
+        return new RoutingSnapshotImpl(version, routingTable, nodes, buffer.array());
+    }
+
+    /**
+     * Throws IllegalArgumentException if counts or lengths don't match the bytes available or the partitioner.
+     */
+    public static RoutingSnapshot decode(ByteBuffer src, Partitioner partitioner) {
+        byte[] encoded = new byte[src.remaining()];
+        src.duplicate().get(encoded);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        checkRemaining(buffer, 8 + 4);
+        long version = buffer.getLong();
+        int partitionsCount = buffer.getInt();
+        Preconditions.checkArgument(partitionsCount > 0 && partitionsCount <= (buffer.remaining() - 4) / 4,
+                "Invalid partitions count %s", partitionsCount);
+        int[] owner = new int[partitionsCount];
+        for (int partition = 0; partition < owner.length; partition++) {
+            owner[partition] = buffer.getInt();
+        }
+        int nodesCount = buffer.getInt();
+        Preconditions.checkArgument(nodesCount >= 0 && nodesCount <= buffer.remaining() / NODE_HEADER_SIZE,
+                "Invalid nodes count %s", nodesCount);
+        Map<Integer, Node> nodes = new HashMap<>(nodesCount * 2);
+        for (int i = 0; i < nodesCount; i++) {
+            checkRemaining(buffer, NODE_HEADER_SIZE);
+            int id = buffer.getInt();
+            int port = buffer.getInt();
+            int hostLength = buffer.getShort() & MAX_HOST_LENGTH;
+            checkRemaining(buffer, hostLength);
+            byte[] host = new byte[hostLength];
+            buffer.get(host);
+            nodes.put(id, new NodeImpl(id, new String(host, StandardCharsets.US_ASCII), port));
+        }
+        return new RoutingSnapshotImpl(version, new RoutingTableImpl(owner, partitioner), nodes, encoded);
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, int size) {
+        Preconditions.checkArgument(buffer.remaining() >= size, "Snapshot truncated at byte %s", buffer.position());
+    }
+}
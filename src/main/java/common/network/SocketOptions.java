@@ -0,0 +1,27 @@
+package common.network;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SocketChannel;
+
+public final class SocketOptions {
+
+    private SocketOptions() {
+    }
+
+    public static void apply(SocketChannel channel, NetworkSettings settings) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, settings.tcpNoDelay());
+        if (settings.sendBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, settings.sendBufferSize());
+        }
+        applyReceiveBuffer(channel, settings);
+    }
+
+    // must be set on a listening socket before bind to let accepted sockets advertise windows above 64K
+    public static void applyReceiveBuffer(NetworkChannel channel, NetworkSettings settings) throws IOException {
+        if (settings.receiveBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, settings.receiveBufferSize());
+        }
+    }
+}
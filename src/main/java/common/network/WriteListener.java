@@ -0,0 +1,8 @@
+package common.network;
+
+public interface WriteListener {
+    // bytes were left in the outbound queue, the channel has to be flushed once it is writable again
+    void onWritePending();
+    // the outbound queue crossed the high watermark
+    void onWriteSuffer();
+}
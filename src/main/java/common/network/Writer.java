@@ -1,6 +1,9 @@
 package common.network;
 
 public interface Writer {
+    // returns number of bytes left in the outbound queue or -1 if connection should be closed
     int performWrite();
+    // returns number of bytes in the outbound queue or -1 if connection is closed
+    int pendingBytes();
     void close();
 }
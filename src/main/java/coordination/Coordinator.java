@@ -2,7 +2,7 @@ package coordination;
 
 import common.Service;
 
-public interface Coordinator extends Service {
+public interface Coordinator extends Service, PartitionHandoff {
     void join(CoordinatedNode node);
     void leave(CoordinatedNode node);
     void subscribe(CoordinatorListener listener);
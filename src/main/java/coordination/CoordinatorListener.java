@@ -3,5 +3,5 @@ package coordination;
 import java.util.Collection;
 
 public interface CoordinatorListener {
-    void onStateUpdate(Collection<CoordinatedNode> nodes);
+    void onStateUpdate(Collection<CoordinatedNode> added, Collection<CoordinatedNode> removed, long version);
 }
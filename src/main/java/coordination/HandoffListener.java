@@ -0,0 +1,5 @@
+package coordination;
+
+public interface HandoffListener {
+    void onHandoff(int partition, long offset);
+}
@@ -0,0 +1,7 @@
+package coordination;
+
+public interface PartitionHandoff {
+    void release(int partition, long offset, long version);
+    void acquire(int partition, long version, HandoffListener listener);
+    void cancel(int partition);
+}
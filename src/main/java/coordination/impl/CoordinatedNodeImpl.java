@@ -5,6 +5,7 @@ import model.Node;
 import model.impl.NodeImpl;
 
 import java.util.Collection;
+import java.util.Objects;
 
 public class CoordinatedNodeImpl extends NodeImpl implements CoordinatedNode {
 
@@ -24,6 +25,16 @@ public class CoordinatedNodeImpl extends NodeImpl implements CoordinatedNode {
         return splitPoints;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Objects.equals(splitPoints, ((CoordinatedNodeImpl) o).splitPoints);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(splitPoints);
+    }
+
     @Override
     public String toString() {
         return super.toString() + " " + splitPoints;
@@ -5,6 +5,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
@@ -12,19 +13,26 @@ import common.Service;
 import coordination.CoordinatedNode;
 import coordination.Coordinator;
 import coordination.CoordinatorListener;
+import coordination.HandoffListener;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import org.apache.zookeeper.*;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 public class ZkCoordinator implements Coordinator, Service {
 
@@ -70,13 +78,41 @@ public class ZkCoordinator implements Coordinator, Service {
         }
     }
 
+    private class ZkHandoffWatcher implements Watcher {
+        @Override
+        public void process(WatchedEvent event) {
+            String path = event.getPath();
+            if (path == null || !path.startsWith(handoffPath + "/")) {
+                return;
+            }
+            logger.info("Event {} on handoff path {} occurred", event.getType(), path);
+            checkHandoff(Integer.parseInt(path.substring(handoffPath.length() + 1)));
+        }
+    }
+
+    private static class PendingHandoff {
+        private final HandoffListener listener;
+        private final long version;
+
+        public PendingHandoff(HandoffListener listener, long version) {
+            this.listener = listener;
+            this.version = version;
+        }
+    }
+
     private static final int SESSION_TIMEOUT = 6000;
+    private static final int HANDOFF_DATA_SIZE = 20;
+    private static final long MAX_REFRESH_RETRY_DELAY = 10000;
     private final String zkConnectionString;
     private final String zkPath;
+    private final String handoffPath;
+    private final long debounceWindow;
+    private final Timer stateReadTimer;
 
     private ZooKeeper zk;
     private ZkStateWatcher stateWatcher;
     private ZkPathWatcher pathWatcher;
+    private ZkHandoffWatcher handoffWatcher;
     private Kryo kryo = new Kryo();
 
     private boolean connected;
@@ -85,17 +121,25 @@ public class ZkCoordinator implements Coordinator, Service {
     private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
     private Map<Integer, CoordinatedNode> nodesState;
+    private long nodesStateVersion = -1;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private int failedRefreshes;
     private Queue<NodeOperation> pendingOperations = Queues.newArrayDeque();
 
     private Collection<CoordinatorListener> listeners = Lists.newArrayList();
+    private final Map<Integer, PendingHandoff> pendingHandoffs = Maps.newConcurrentMap();
+    private volatile int nodeId = -1;
 
     private final Object lock = new Object();
 
-    public ZkCoordinator(String zkConnectionString, String zkPath) {
+    public ZkCoordinator(String zkConnectionString, String zkPath, long debounceWindow, MetricsRegistry metrics) {
         logger.info("Creating zookeeper coordinator");
         Preconditions.checkArgument(!zkConnectionString.isEmpty(), "ZooKeeper connections can't be empty");
         this.zkConnectionString = zkConnectionString;
         this.zkPath = zkPath.startsWith("/") ? zkPath : "/" + zkPath;
+        this.handoffPath = this.zkPath + "-handoff";
+        this.debounceWindow = debounceWindow;
+        this.stateReadTimer = metrics.timer("rebalance_zk_read_seconds", "Time to read nodes state from ZooKeeper");
     }
 
     @Override
@@ -107,6 +151,7 @@ public class ZkCoordinator implements Coordinator, Service {
     @Override
     public void stop() {
         logger.info("Stopping zookeeper coordinator");
+        executor.shutdownNow();
         try {
             zk.close();
         } catch (InterruptedException e) {
@@ -118,6 +163,7 @@ public class ZkCoordinator implements Coordinator, Service {
     @Override
     public void join(CoordinatedNode node) {
         logger.info("Coordinated node {} is joining", node);
+        nodeId = node.id();
         synchronized (lock) {
             if (connected && !readOnly) {
                 logger.info("zk is connected and writable. Will attempt registering node");
@@ -149,13 +195,117 @@ public class ZkCoordinator implements Coordinator, Service {
         synchronized (lock) {
             if (nodesState != null && !nodesState.isEmpty()) {
                 logger.info("Have nodes state info. Subscriber will be notified immediately");
-                listener.onStateUpdate(ImmutableList.copyOf(nodesState.values()));
+                listener.onStateUpdate(ImmutableList.copyOf(nodesState.values()), ImmutableList.of(), nodesStateVersion);
+            } else {
+                logger.info("Empty nodes state info. Subscriber will be notified later");
             }
-            logger.info("Empty nodes state info. Subscriber will be notified later");
             listeners.add(listener);
         }
     }
 
+    @Override
+    public void release(int partition, long offset, long version) {
+        logger.info("Releasing partition {} at offset {} of state {}", partition, offset, version);
+        String partitionPath = handoffPath + "/" + partition;
+        byte[] data = ByteBuffer.allocate(HANDOFF_DATA_SIZE).putLong(version).putInt(nodeId).putLong(offset).array();
+        try {
+            try {
+                zk.create(partitionPath, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            } catch (KeeperException.NodeExistsException e) {
+                zk.setData(partitionPath, data, -1);
+            }
+        } catch (KeeperException e) {
+            logger.warn("Error while releasing partition {}. New owner will fall back to committed offset", partition, e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while releasing partition {}", partition);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void acquire(int partition, long version, HandoffListener listener) {
+        logger.info("Waiting for handoff of partition {} of state {}", partition, version);
+        pendingHandoffs.put(partition, new PendingHandoff(listener, version));
+        checkHandoff(partition);
+    }
+
+    @Override
+    public void cancel(int partition) {
+        logger.info("Handoff of partition {} cancelled", partition);
+        PendingHandoff pending = pendingHandoffs.remove(partition);
+        if (pending == null) {
+            return;
+        }
+        String partitionPath = handoffPath + "/" + partition;
+        try {
+            Stat stat = new Stat();
+            ByteBuffer data = ByteBuffer.wrap(zk.getData(partitionPath, false, stat));
+            if (data.remaining() != HANDOFF_DATA_SIZE || data.getLong() <= pending.version) {
+                deleteHandoff(partition, stat);
+            }
+        } catch (KeeperException.NoNodeException e) {
+            logger.info("No handoff of partition {} to delete", partition);
+        } catch (KeeperException e) {
+            logger.warn("Error while deleting handoff of cancelled partition {}", partition, e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while deleting handoff of partition {}", partition);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkHandoff(int partition) {
+        PendingHandoff pending = pendingHandoffs.get(partition);
+        if (pending == null) {
+            return;
+        }
+        String partitionPath = handoffPath + "/" + partition;
+        try {
+            if (zk.exists(partitionPath, handoffWatcher) == null) {
+                return;
+            }
+            Stat stat = new Stat();
+            ByteBuffer data = ByteBuffer.wrap(zk.getData(partitionPath, false, stat));
+            if (data.remaining() != HANDOFF_DATA_SIZE) {
+                logger.warn("Handoff of partition {} has unexpected size {}. Deleting it", partition, data.remaining());
+                deleteHandoff(partition, stat);
+                return;
+            }
+            long version = data.getLong();
+            int releasedBy = data.getInt();
+            long offset = data.getLong();
+            if (version < pending.version) {
+                logger.info("Deleting stale handoff of partition {} released by node {} at state {} before state {}",
+                        partition, releasedBy, version, pending.version);
+                deleteHandoff(partition, stat);
+                return;
+            }
+            if (!deleteHandoff(partition, stat) || !pendingHandoffs.remove(partition, pending)) {
+                return;
+            }
+            logger.info("Partition {} handed off by node {} at offset {} of state {}", partition, releasedBy, offset, version);
+            pending.listener.onHandoff(partition, offset);
+        } catch (KeeperException.NoNodeException e) {
+            logger.info("Handoff of partition {} disappeared before it was read", partition);
+        } catch (KeeperException e) {
+            logger.warn("Error while checking handoff of partition {}", partition, e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while checking handoff of partition {}", partition);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean deleteHandoff(int partition, Stat stat) throws KeeperException, InterruptedException {
+        try {
+            zk.delete(handoffPath + "/" + partition, stat.getVersion());
+            return true;
+        } catch (KeeperException.NoNodeException e) {
+            logger.info("Handoff of partition {} was already consumed", partition);
+        } catch (KeeperException.BadVersionException e) {
+            logger.info("Handoff of partition {} was rewritten while it was read", partition);
+        }
+        return false;
+    }
+
     private void onZkConnected() {
         logger.info("Zk connection established");
         synchronized (lock) {
@@ -168,24 +318,28 @@ public class ZkCoordinator implements Coordinator, Service {
             while (!pendingOperations.isEmpty()) {
                 performOperation(pendingOperations.poll());
             }
-
-            logger.info("Will attempt to read state and notify listeners");
-            readNodeStateAndNotifyListeners();
         }
+        scheduleRefresh();
+        pendingHandoffs.keySet().forEach(this::checkHandoff);
     }
 
     private void verifyRootPathExists() {
+        verifyPathExists(zkPath);
+        verifyPathExists(handoffPath);
+    }
+
+    private void verifyPathExists(String path) {
         try {
-            Stat stat = zk.exists(zkPath, false);
-            logger.info("Zk path {} {}", zkPath, stat != null ? "exists" : "doesn't exist");
+            Stat stat = zk.exists(path, false);
+            logger.info("Zk path {} {}", path, stat != null ? "exists" : "doesn't exist");
             if (stat == null) {
-                logger.info("Creating zk path {}", zkPath);
-                zk.create(zkPath, new byte[] {}, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                logger.info("Creating zk path {}", path);
+                zk.create(path, new byte[] {}, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
             }
         } catch (KeeperException e) {
-            logger.error("Error while checking path {} for existence", zkPath);
+            logger.error("Error while checking path {} for existence", path);
         } catch (InterruptedException e) {
-            logger.warn("Interrupted while checking {} path for existence", zkPath);
+            logger.warn("Interrupted while checking {} path for existence", path);
             Thread.currentThread().interrupt();
         }
     }
@@ -194,10 +348,8 @@ public class ZkCoordinator implements Coordinator, Service {
         logger.info("Zk connection established. Read only!");
         synchronized (lock) {
             this.readOnly = true;
-
-            logger.info("Will attempt to read state and notify listeners");
-            readNodeStateAndNotifyListeners();
         }
+        scheduleRefresh();
     }
 
     private void onZkDisconnected() {
@@ -209,23 +361,68 @@ public class ZkCoordinator implements Coordinator, Service {
 
     private void onChildNodesChanged() {
         logger.info("Child nodes changed");
-        synchronized (lock) {
-            readNodeStateAndNotifyListeners();
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        scheduleRefresh(debounceWindow);
+    }
+
+    private void scheduleRefresh(long delay) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (refreshScheduled.compareAndSet(false, true)) {
+            logger.info("Scheduling nodes state refresh in {} ms", delay);
+            executor.schedule(this::readNodeStateAndNotifyListeners, delay, TimeUnit.MILLISECONDS);
+        } else {
+            logger.info("Nodes state refresh is already scheduled");
         }
     }
 
     private void readNodeStateAndNotifyListeners() {
-        Map<Integer, CoordinatedNode> updatedNodesState = readState();
-        logger.info("Reading {} nodes state from zookeeper", updatedNodesState != null ? "not empty" : "empty");
-        if (updatedNodesState != null) {
+        refreshScheduled.set(false);
+        Stat stat = new Stat();
+        long readStart = System.nanoTime();
+        Map<Integer, CoordinatedNode> updatedNodesState = readState(stat);
+        stateReadTimer.recordSince(readStart);
+        if (updatedNodesState == null) {
+            // the child watch is not re-armed when getChildren itself failed, so no event would trigger a retry
+            long retryDelay = Math.min(MAX_REFRESH_RETRY_DELAY, Math.max(1, debounceWindow) << Math.min(failedRefreshes, 16));
+            failedRefreshes++;
+            logger.info("Failed to read nodes state. Retry in {} ms", retryDelay);
+            scheduleRefresh(retryDelay);
+            return;
+        }
+        failedRefreshes = 0;
+        synchronized (lock) {
+            if (nodesState != null && stat.getCversion() == nodesStateVersion) {
+                logger.info("Nodes state version {} is already known", nodesStateVersion);
+                return;
+            }
+            Map<Integer, CoordinatedNode> previousNodesState = nodesState != null ? nodesState : ImmutableMap.of();
+            Collection<CoordinatedNode> added = changedNodes(updatedNodesState, previousNodesState);
+            Collection<CoordinatedNode> removed = changedNodes(previousNodesState, updatedNodesState);
             nodesState = updatedNodesState;
-            logger.info("Notifying {} listeners about state changes", listeners.size());
+            nodesStateVersion = stat.getCversion();
+            if (added.isEmpty() && removed.isEmpty()) {
+                logger.info("Nodes state version {} has no node changes", nodesStateVersion);
+                return;
+            }
+            logger.info("Notifying {} listeners about state version {}: {} added, {} removed", listeners.size(),
+                    nodesStateVersion, added, removed);
             for (CoordinatorListener listener : listeners) {
-                listener.onStateUpdate(ImmutableList.copyOf(nodesState.values()));
+                listener.onStateUpdate(added, removed, nodesStateVersion);
             }
         }
     }
 
+    private Collection<CoordinatedNode> changedNodes(Map<Integer, CoordinatedNode> state, Map<Integer, CoordinatedNode> base) {
+        return state.values().stream()
+                .filter(node -> !node.equals(base.get(node.id())))
+                .collect(Collectors.collectingAndThen(Collectors.toList(), ImmutableList::copyOf));
+    }
+
     private void performOperation(NodeOperation operation) {
         if (operation.type() == NodeOperation.Type.JOIN) {
             logger.info("Performing postponed join operation");
@@ -241,7 +438,7 @@ public class ZkCoordinator implements Coordinator, Service {
         Output output = new Output(1000);
         kryo.writeObject(output, node);
         try {
-            zk.create(zkPath + "/" + node, output.toBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+            zk.create(nodePath(node), output.toBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
             logger.info("Registration success");
         } catch (KeeperException e) {
             logger.info("Error during node registration. Adding operation to retry queue", e);
@@ -252,17 +449,33 @@ public class ZkCoordinator implements Coordinator, Service {
         }
     }
 
-    private Map<Integer, CoordinatedNode> readState() {
+    private Map<Integer, CoordinatedNode> readState(Stat stat) {
         logger.info("Reading nodes states");
         try {
-            Map<Integer, CoordinatedNode> result = Maps.newHashMap();
-            List<String> children = zk.getChildren(zkPath, pathWatcher);
-            logger.info("Got {} child nodes", children.size());
+            List<String> children = zk.getChildren(zkPath, pathWatcher, stat);
+            logger.info("Got {} child nodes of version {}", children.size(), stat.getCversion());
+            Map<String, byte[]> childrenData = Maps.newConcurrentMap();
+            CountDownLatch latch = new CountDownLatch(children.size());
             for (String child : children) {
-                logger.info("Reading state of node {}", child);
-                Input input = new Input(zk.getData(zkPath + "/" + child, pathWatcher, null));
-                CoordinatedNode node = kryo.readObject(input, CoordinatedNodeImpl.class);
-                result.put(node.id(), node);
+                zk.getData(zkPath + "/" + child, false, (rc, path, ctx, data, dataStat) -> {
+                    if (rc == KeeperException.Code.OK.intValue()) {
+                        childrenData.put(path, data);
+                    } else {
+                        logger.info("Node {} is not readable: {}", path, KeeperException.Code.get(rc));
+                    }
+                    latch.countDown();
+                }, null);
+            }
+            if (!latch.await(SESSION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("Timed out while reading state of {} nodes", latch.getCount());
+                return null;
+            }
+            Map<Integer, CoordinatedNode> result = Maps.newHashMap();
+            synchronized (lock) {
+                for (byte[] data : childrenData.values()) {
+                    CoordinatedNode node = kryo.readObject(new Input(data), CoordinatedNodeImpl.class);
+                    result.put(node.id(), node);
+                }
             }
             logger.info("Read nodes state success");
             return result;
@@ -278,8 +491,10 @@ public class ZkCoordinator implements Coordinator, Service {
     private void unregisterNode(CoordinatedNode node) {
         logger.info("Unregistering node {}", node);
         try {
-            zk.delete(zkPath + "/" + node.id(), 0);
+            zk.delete(nodePath(node), -1);
             logger.info("Node unregistered");
+        } catch (KeeperException.NoNodeException e) {
+            logger.info("Node {} is not registered", node.id());
         } catch (KeeperException e) {
             logger.info("Error during node unregistration. Adding operation to retry queue", e);
             addPendingLeaveOperation(node);
@@ -289,10 +504,15 @@ public class ZkCoordinator implements Coordinator, Service {
         }
     }
 
+    private String nodePath(CoordinatedNode node) {
+        return zkPath + "/" + node.id();
+    }
+
     private void establishConnection() {
         logger.info("Establishing connection to ZooKeeper with connection string {}", zkConnectionString);
         stateWatcher = new ZkStateWatcher();
         pathWatcher = new ZkPathWatcher();
+        handoffWatcher = new ZkHandoffWatcher();
         try {
             zk = new ZooKeeper(zkConnectionString, SESSION_TIMEOUT, stateWatcher);
         } catch (IOException e) {
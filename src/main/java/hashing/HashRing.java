@@ -6,9 +6,13 @@ import model.Range;
 import java.util.Collection;
 
 public interface HashRing<I, V> {
-    I hash(V value, Multimap<I, Integer> coordinatorState);
+    void update(Multimap<I, Integer> coordinatorState);
+
+    RoutingTable routingTable();
+
+    I hash(V value);
 
     Collection<Integer> generateSplitPoints(I node);
 
-    Collection<Range> getPartitions(I nodeId, Multimap<I, Integer> coordinatorState);
+    Collection<Range> getPartitions(I nodeId);
 }
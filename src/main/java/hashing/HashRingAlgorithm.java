@@ -0,0 +1,9 @@
+package hashing;
+
+public enum HashRingAlgorithm {
+    SPLIT_POINTS, RENDEZVOUS, JUMP, MAGLEV;
+
+    public static HashRingAlgorithm fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
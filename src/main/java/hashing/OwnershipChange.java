@@ -0,0 +1,9 @@
+package hashing;
+
+import java.util.Set;
+
+public interface OwnershipChange {
+    Set<Integer> gained();
+    Set<Integer> lost();
+    boolean isEmpty();
+}
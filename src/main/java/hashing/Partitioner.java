@@ -0,0 +1,6 @@
+package hashing;
+
+public interface Partitioner {
+    int partitionsCount();
+    int partition(int key);
+}
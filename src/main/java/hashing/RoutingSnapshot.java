@@ -0,0 +1,16 @@
+package hashing;
+
+import model.Node;
+
+import java.util.Map;
+
+public interface RoutingSnapshot {
+    long NO_VERSION = -1;
+    long NOT_REQUESTED = Long.MAX_VALUE;
+
+    long version();
+    RoutingTable routingTable();
+    Map<Integer, Node> nodes();
+    Node owner(int value);
+    byte[] encoded();
+}
@@ -0,0 +1,15 @@
+package hashing;
+
+import model.Range;
+
+import java.util.Collection;
+
+public interface RoutingTable {
+    int NO_OWNER = -1;
+
+    int partitionsCount();
+    int partition(int value);
+    int owner(int partition);
+    Collection<Range> getPartitions(int nodeId);
+    OwnershipChange diff(RoutingTable previous, int nodeId);
+}
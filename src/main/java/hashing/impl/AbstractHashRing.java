@@ -0,0 +1,66 @@
+package hashing.impl;
+
+import com.google.common.collect.Multimap;
+import hashing.HashRing;
+import hashing.Partitioner;
+import hashing.RoutingTable;
+import model.Range;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+public abstract class AbstractHashRing implements HashRing<Integer, Integer> {
+
+    protected final int partitionsCount;
+    private final Partitioner partitioner;
+
+    private volatile RoutingTable routingTable;
+
+    protected AbstractHashRing(Partitioner partitioner) {
+        this.partitionsCount = partitioner.partitionsCount();
+        this.partitioner = partitioner;
+        this.routingTable = RoutingTableImpl.empty(partitioner);
+    }
+
+    @Override
+    public void update(Multimap<Integer, Integer> coordinatorState) {
+        RoutingTable table = coordinatorState.isEmpty()
+                ? RoutingTableImpl.empty(partitioner)
+                : new RoutingTableImpl(buildOwners(coordinatorState), partitioner);
+        logger.info("Compiled routing table {}", table);
+        routingTable = table;
+    }
+
+    @Override
+    public RoutingTable routingTable() {
+        return routingTable;
+    }
+
+    @Override
+    public Integer hash(Integer value) {
+        RoutingTable table = routingTable;
+        int partition = table.partition(value);
+        int partitionOwner = table.owner(partition);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Request to hash value {}: belongs to partition {}, which belongs to node {}", value,
+                    partition, partitionOwner);
+        }
+        return partitionOwner == RoutingTable.NO_OWNER ? null : partitionOwner;
+    }
+
+    @Override
+    public Collection<Range> getPartitions(Integer nodeId) {
+        return routingTable.getPartitions(nodeId);
+    }
+
+    protected abstract int[] buildOwners(Multimap<Integer, Integer> coordinatorState);
+
+    protected static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractHashRing.class);
+}
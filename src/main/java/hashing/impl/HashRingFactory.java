@@ -0,0 +1,26 @@
+package hashing.impl;
+
+import hashing.HashRing;
+import hashing.HashRingAlgorithm;
+import hashing.Partitioner;
+
+public final class HashRingFactory {
+
+    private HashRingFactory() {
+    }
+
+    public static HashRing<Integer, Integer> create(HashRingAlgorithm algorithm, Partitioner partitioner,
+                                                    int splitPointsCount, int rendezvousWeight) {
+        switch (algorithm) {
+            case RENDEZVOUS:
+                return new RendezvousHashRing(partitioner, rendezvousWeight);
+            case JUMP:
+                return new JumpHashRing(partitioner);
+            case MAGLEV:
+                return new MaglevHashRing(partitioner);
+            case SPLIT_POINTS:
+            default:
+                return new HashRingImpl(partitioner, splitPointsCount);
+        }
+    }
+}
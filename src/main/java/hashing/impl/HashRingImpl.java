@@ -1,13 +1,8 @@
 package hashing.impl;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
-import hashing.HashRing;
-import model.NodeRange;
-import model.Range;
-import model.impl.NodeRangeImpl;
-import model.impl.RangeImpl;
+import hashing.Partitioner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,7 +10,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-public class HashRingImpl implements HashRing<Integer, Integer> {
+public class HashRingImpl extends AbstractHashRing {
 
     private static class HashRingEntry implements Comparable<HashRingEntry> {
         private final int nodeId;
@@ -47,13 +42,12 @@ public class HashRingImpl implements HashRing<Integer, Integer> {
         }
     }
 
-    private final int partitionsCount;
     private final int splitPointsNumber;
 
     private final Random random;
 
-    public HashRingImpl(int partitionsCount, int splitPointsNumber) {
-        this.partitionsCount = partitionsCount;
+    public HashRingImpl(Partitioner partitioner, int splitPointsNumber) {
+        super(partitioner);
         this.splitPointsNumber = splitPointsNumber;
         this.random = new Random();
     }
@@ -70,53 +64,18 @@ public class HashRingImpl implements HashRing<Integer, Integer> {
     }
 
     @Override
-    public Integer hash(Integer value, Multimap<Integer, Integer> coordinatorState) {
-        int partition = value.hashCode() % partitionsCount;
+    protected int[] buildOwners(Multimap<Integer, Integer> coordinatorState) {
         SortedSet<HashRingEntry> ringEntries = buildRingEntries(coordinatorState);
-        Integer partitionOwner = getPartitionOwner(ringEntries, partition);
-        logger.info("Request to hash value {}: {} belongs to partition {}, which belongs to node {}", value, value,
-                partition, partitionOwner);
-        return partitionOwner;
-    }
-
-    @Override
-    public Collection<Range> getPartitions(Integer nodeId, Multimap<Integer, Integer> coordinatorState) {
-        SortedSet<HashRingEntry> ringEntries = buildRingEntries(coordinatorState);
-        Collection<NodeRange> ranges = Lists.newArrayList();
-        Integer rangeStart = 0;
-        Integer rangeEnd = 0;
-        Integer previousNode = ringEntries.first().nodeId();
-        for (HashRingEntry entry : ringEntries) {
-            int splitPoint = entry.splitPoint();
-            int currentNode = entry.nodeId();
-            if (splitPoint - rangeEnd > 0) {
-                if (currentNode != previousNode) {
-                    ranges.add(new NodeRangeImpl(rangeStart, rangeEnd, previousNode));
-                    rangeStart = rangeEnd;
-                    rangeEnd = splitPoint;
-                    previousNode = currentNode;
-                } else {
-                    rangeEnd = splitPoint;
-                }
-            }
-        }
-
-        int firstNode = ringEntries.first().nodeId();
-        if (firstNode != previousNode) {
-            ranges.add(new NodeRangeImpl(rangeStart, rangeEnd, previousNode));
-            ranges.add(new NodeRangeImpl(rangeEnd, partitionsCount, firstNode));
-        } else {
-            ranges.add(new NodeRangeImpl(rangeStart, partitionsCount, previousNode));
+        int[] owner = new int[partitionsCount];
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            owner[partition] = getPartitionOwner(ringEntries, partition);
         }
-
-        return ranges.stream().filter(r -> r.node() == nodeId).map(r -> new RangeImpl(r.from(), r.to())).collect(Collectors.toList());
+        return owner;
     }
 
-    private Integer getPartitionOwner(SortedSet<HashRingEntry> ringEntries, int partition) {
-        Integer ownerId;
+    private int getPartitionOwner(SortedSet<HashRingEntry> ringEntries, int partition) {
         SortedSet<HashRingEntry> tailEntries = ringEntries.tailSet(new HashRingEntry(Integer.MAX_VALUE, partition));
-        ownerId = tailEntries.isEmpty() ? ringEntries.first().nodeId() : tailEntries.first().nodeId();
-        return ownerId;
+        return tailEntries.isEmpty() ? ringEntries.first().nodeId() : tailEntries.first().nodeId();
     }
 
     private SortedSet<HashRingEntry> buildRingEntries(Multimap<Integer, Integer> states) {
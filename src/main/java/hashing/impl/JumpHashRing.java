@@ -0,0 +1,45 @@
+package hashing.impl;
+
+import com.google.common.collect.Multimap;
+import hashing.Partitioner;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Bucket i belongs to the node with the i-th smallest id, since every server has to derive the same buckets from the
+ * membership alone. Jump hash moves only 1/N of partitions when the highest id joins or leaves. Any other node
+ * shifts the buckets above it, so its leave also moves partitions between the remaining nodes.
+ */
+public class JumpHashRing extends AbstractHashRing {
+
+    public JumpHashRing(Partitioner partitioner) {
+        super(partitioner);
+    }
+
+    @Override
+    public Collection<Integer> generateSplitPoints(Integer nodeId) {
+        return Collections.singletonList(nodeId);
+    }
+
+    @Override
+    protected int[] buildOwners(Multimap<Integer, Integer> coordinatorState) {
+        int[] buckets = coordinatorState.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] owner = new int[partitionsCount];
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            owner[partition] = buckets[jump(mix(partition), buckets.length)];
+        }
+        return owner;
+    }
+
+    static int jump(long key, int bucketsCount) {
+        long bucket = -1;
+        long next = 0;
+        while (next < bucketsCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
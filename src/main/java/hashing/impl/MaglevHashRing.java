@@ -0,0 +1,62 @@
+package hashing.impl;
+
+import com.google.common.math.IntMath;
+import com.google.common.collect.Multimap;
+import hashing.Partitioner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+public class MaglevHashRing extends AbstractHashRing {
+
+    public MaglevHashRing(Partitioner partitioner) {
+        super(partitioner);
+    }
+
+    @Override
+    public Collection<Integer> generateSplitPoints(Integer nodeId) {
+        return Collections.singletonList(nodeId);
+    }
+
+    @Override
+    protected int[] buildOwners(Multimap<Integer, Integer> coordinatorState) {
+        int[] nodes = coordinatorState.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int tableSize = partitionsCount;
+        int[] offsets = new int[nodes.length];
+        int[] skips = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i] = (int) Long.remainderUnsigned(mix(nodes[i]), tableSize);
+            skips[i] = coprimeSkip(mix(~(long) nodes[i]), tableSize);
+        }
+
+        int[] owner = new int[tableSize];
+        Arrays.fill(owner, -1);
+        int[] next = new int[nodes.length];
+        int filled = 0;
+        while (filled < tableSize) {
+            for (int i = 0; i < nodes.length && filled < tableSize; i++) {
+                int slot = (int) ((offsets[i] + (long) next[i] * skips[i]) % tableSize);
+                while (owner[slot] != -1) {
+                    next[i]++;
+                    slot = (int) ((offsets[i] + (long) next[i] * skips[i]) % tableSize);
+                }
+                owner[slot] = nodes[i];
+                next[i]++;
+                filled++;
+            }
+        }
+        return owner;
+    }
+
+    private int coprimeSkip(long hash, int tableSize) {
+        if (tableSize == 1) {
+            return 1;
+        }
+        int skip = (int) Long.remainderUnsigned(hash, tableSize - 1) + 1;
+        while (IntMath.gcd(skip, tableSize) != 1) {
+            skip = skip % (tableSize - 1) + 1;
+        }
+        return skip;
+    }
+}
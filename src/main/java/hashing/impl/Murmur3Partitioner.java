@@ -0,0 +1,38 @@
+package hashing.impl;
+
+import com.google.common.base.Preconditions;
+import hashing.Partitioner;
+
+public class Murmur3Partitioner implements Partitioner {
+
+    private final int partitionsCount;
+
+    public Murmur3Partitioner(int partitionsCount) {
+        Preconditions.checkArgument(partitionsCount > 0, "Partitions count must be positive");
+        this.partitionsCount = partitionsCount;
+    }
+
+    @Override
+    public int partitionsCount() {
+        return partitionsCount;
+    }
+
+    @Override
+    public int partition(int key) {
+        return (int) (((fmix32(key) & 0xFFFFFFFFL) * partitionsCount) >>> 32);
+    }
+
+    static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "murmur3/" + partitionsCount;
+    }
+}
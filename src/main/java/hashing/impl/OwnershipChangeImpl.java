@@ -0,0 +1,36 @@
+package hashing.impl;
+
+import com.google.common.collect.ImmutableSet;
+import hashing.OwnershipChange;
+
+import java.util.Set;
+
+public class OwnershipChangeImpl implements OwnershipChange {
+    private final Set<Integer> gained;
+    private final Set<Integer> lost;
+
+    public OwnershipChangeImpl(Set<Integer> gained, Set<Integer> lost) {
+        this.gained = ImmutableSet.copyOf(gained);
+        this.lost = ImmutableSet.copyOf(lost);
+    }
+
+    @Override
+    public Set<Integer> gained() {
+        return gained;
+    }
+
+    @Override
+    public Set<Integer> lost() {
+        return lost;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return gained.isEmpty() && lost.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "gained " + gained + ", lost " + lost;
+    }
+}
@@ -0,0 +1,54 @@
+package hashing.impl;
+
+import com.google.common.collect.Multimap;
+import hashing.Partitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+
+public class RendezvousHashRing extends AbstractHashRing {
+
+    private final int weight;
+
+    public RendezvousHashRing(Partitioner partitioner, int weight) {
+        super(partitioner);
+        this.weight = weight;
+    }
+
+    @Override
+    public Collection<Integer> generateSplitPoints(Integer nodeId) {
+        logger.info("Node {} joins rendezvous ring with weight {}", nodeId, weight);
+        return Collections.singletonList(weight);
+    }
+
+    @Override
+    protected int[] buildOwners(Multimap<Integer, Integer> coordinatorState) {
+        int[] nodes = coordinatorState.keySet().stream().mapToInt(Integer::intValue).toArray();
+        double[] weights = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            weights[i] = Math.max(1, coordinatorState.get(nodes[i]).iterator().next());
+        }
+        int[] owner = new int[partitionsCount];
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < nodes.length; i++) {
+                double score = score(nodes[i], partition, weights[i]);
+                if (score > bestScore || (score == bestScore && nodes[i] < owner[partition])) {
+                    bestScore = score;
+                    owner[partition] = nodes[i];
+                }
+            }
+        }
+        return owner;
+    }
+
+    private double score(int nodeId, int partition, double nodeWeight) {
+        long hash = mix(((long) nodeId << 32) | (partition & 0xFFFFFFFFL));
+        double uniform = ((hash >>> 11) + 1) * 0x1.0p-53;
+        return -nodeWeight / Math.log(uniform);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(RendezvousHashRing.class);
+}
@@ -0,0 +1,54 @@
+package hashing.impl;
+
+import com.google.common.collect.ImmutableMap;
+import hashing.RoutingSnapshot;
+import hashing.RoutingTable;
+import model.Node;
+
+import java.util.Map;
+
+public class RoutingSnapshotImpl implements RoutingSnapshot {
+    private final long version;
+    private final RoutingTable routingTable;
+    private final Map<Integer, Node> nodes;
+    private final byte[] encoded;
+
+    public RoutingSnapshotImpl(long version, RoutingTable routingTable, Map<Integer, ? extends Node> nodes,
+                               byte[] encoded) {
+        this.version = version;
+        this.routingTable = routingTable;
+        this.nodes = ImmutableMap.copyOf(nodes);
+        this.encoded = encoded;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public RoutingTable routingTable() {
+        return routingTable;
+    }
+
+    @Override
+    public Map<Integer, Node> nodes() {
+        return nodes;
+    }
+
+    @Override
+    public Node owner(int value) {
+        int owner = routingTable.owner(routingTable.partition(value));
+        return owner == RoutingTable.NO_OWNER ? null : nodes.get(owner);
+    }
+
+    @Override
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + routingTable + " " + nodes.values();
+    }
+}
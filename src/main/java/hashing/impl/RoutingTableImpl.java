@@ -0,0 +1,92 @@
+package hashing.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import hashing.OwnershipChange;
+import hashing.Partitioner;
+import hashing.RoutingTable;
+import model.Range;
+import model.impl.RangeImpl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public class RoutingTableImpl implements RoutingTable {
+
+    private final int[] owner;
+    private final Partitioner partitioner;
+
+    public RoutingTableImpl(int[] owner, Partitioner partitioner) {
+        Preconditions.checkArgument(partitioner.partitionsCount() == owner.length, "Partitions count mismatch");
+        this.owner = owner;
+        this.partitioner = partitioner;
+    }
+
+    public static RoutingTableImpl empty(Partitioner partitioner) {
+        int[] owner = new int[partitioner.partitionsCount()];
+        Arrays.fill(owner, NO_OWNER);
+        return new RoutingTableImpl(owner, partitioner);
+    }
+
+    @Override
+    public int partitionsCount() {
+        return owner.length;
+    }
+
+    @Override
+    public int partition(int value) {
+        return partitioner.partition(value);
+    }
+
+    @Override
+    public int owner(int partition) {
+        return owner[partition];
+    }
+
+    @Override
+    public Collection<Range> getPartitions(int nodeId) {
+        List<Range> ranges = Lists.newArrayList();
+        int rangeStart = -1;
+        for (int partition = 0; partition < owner.length; partition++) {
+            if (owner[partition] == nodeId) {
+                if (rangeStart == -1) {
+                    rangeStart = partition;
+                }
+            } else if (rangeStart != -1) {
+                ranges.add(new RangeImpl(rangeStart, partition));
+                rangeStart = -1;
+            }
+        }
+        if (rangeStart != -1) {
+            ranges.add(new RangeImpl(rangeStart, owner.length));
+        }
+        return ranges;
+    }
+
+    @Override
+    public OwnershipChange diff(RoutingTable previous, int nodeId) {
+        Preconditions.checkArgument(previous.partitionsCount() == owner.length, "Partitions count mismatch");
+        Set<Integer> gained = Sets.newHashSet();
+        Set<Integer> lost = Sets.newHashSet();
+        for (int partition = 0; partition < owner.length; partition++) {
+            int previousOwner = previous.owner(partition);
+            if (previousOwner == owner[partition]) {
+                continue;
+            }
+            if (owner[partition] == nodeId) {
+                gained.add(partition);
+            } else if (previousOwner == nodeId) {
+                lost.add(partition);
+            }
+        }
+        return new OwnershipChangeImpl(gained, lost);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(owner);
+    }
+}
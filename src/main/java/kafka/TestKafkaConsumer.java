@@ -1,11 +1,12 @@
 package kafka;
 
 import common.Service;
-import model.Range;
-
-import java.util.Collection;
+import coordination.PartitionHandoff;
+import hashing.OwnershipChange;
 
 public interface TestKafkaConsumer extends Service {
     void setListener(TestKafkaConsumerListener listener);
-    void setPartitions(Collection<Range> partitions);
+    void setHandoff(PartitionHandoff handoff);
+    void updatePartitions(OwnershipChange change, long version);
+    int assignedPartitionsCount();
 }
@@ -1,5 +1,7 @@
 package kafka;
 
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+
 public interface TestKafkaConsumerListener {
-    void consume(String record);
+    void consume(ConsumerRecords<Integer, byte[]> records);
 }
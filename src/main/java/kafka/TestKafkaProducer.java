@@ -1,5 +1,9 @@
 package kafka;
 
+import org.apache.kafka.clients.producer.Callback;
+
 public interface TestKafkaProducer {
     void produce(int accountId, int value);
+    // timestamp is the wall-clock time in ms the message is considered sent at
+    void produce(int accountId, int value, long timestamp, Callback callback);
 }
@@ -1,50 +1,138 @@
 package kafka.impl;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import common.Service;
+import coordination.HandoffListener;
+import coordination.PartitionHandoff;
+import hashing.OwnershipChange;
 import kafka.TestKafkaConsumer;
 import kafka.TestKafkaConsumerListener;
-import model.Range;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
-public class TestKafkaConsumerImpl implements TestKafkaConsumer, Service {
+public class TestKafkaConsumerImpl implements TestKafkaConsumer, HandoffListener, Service {
+
+    private static class Handoff {
+        private final int partition;
+        private final long offset;
+
+        public Handoff(int partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+        }
+    }
+
+    private static class PendingChange {
+        private final OwnershipChange change;
+        private final long version;
+
+        public PendingChange(OwnershipChange change, long version) {
+            this.change = change;
+            this.version = version;
+        }
+    }
+
+    private static final long POLL_TIMEOUT = 100;
+    private static final long UNKNOWN_OFFSET = -1;
 
     private final String topic;
-    private Set<Range> topicPartitionRanges;
-    private ExecutorService executor;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService lagExecutor = Executors.newSingleThreadScheduledExecutor();
     private final String bootstrapServers;
     private volatile TestKafkaConsumerListener listener;
     private final int consumerId;
+    private final long handoffTimeout;
+    private final long lagInterval;
+    private volatile PartitionHandoff handoff;
+
+    private final Queue<PendingChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile Set<Integer> assignedPartitions = ImmutableSet.of();
+    private final Map<Integer, Long> awaitedHandoffs = Maps.newHashMap();
+    private final Queue<Handoff> receivedHandoffs = new ConcurrentLinkedQueue<>();
+    private volatile long lastHandoffLatency;
+    private volatile boolean running;
 
-    public TestKafkaConsumerImpl(String bootstrapServers, String topic, int consumerId) {
+    private final AtomicLongArray positions;
+    private final AtomicLongArray endOffsets;
+    private KafkaConsumer<Integer, byte[]> lagConsumer;
+    private final Counter polls;
+    private final Counter recordsCount;
+    private final Counter bytesCount;
+    private final Counter handoffs;
+    private final Timer reassignmentTimer;
+    private volatile long lastPollRecords;
+
+    public TestKafkaConsumerImpl(String bootstrapServers, String topic, int consumerId, long handoffTimeout,
+                                 int partitionsCount, long lagInterval, MetricsRegistry metrics) {
         logger.info("Creating kafka consumer with id {} for topic {}", consumerId, topic);
         this.topic = topic;
         this.bootstrapServers = bootstrapServers;
         this.consumerId = consumerId;
+        this.handoffTimeout = handoffTimeout;
+        this.lagInterval = lagInterval;
+        this.positions = new AtomicLongArray(partitionsCount);
+        this.endOffsets = new AtomicLongArray(partitionsCount);
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            positions.set(partition, UNKNOWN_OFFSET);
+            endOffsets.set(partition, UNKNOWN_OFFSET);
+        }
+        this.polls = metrics.counter("kafka_polls_total", "Kafka polls that returned records");
+        this.recordsCount = metrics.counter("kafka_records_total", "Kafka records consumed");
+        this.bytesCount = metrics.counter("kafka_bytes_total", "Kafka record value bytes consumed");
+        this.handoffs = metrics.counter("kafka_handoffs_total", "Acquired partitions resumed after a handoff or its timeout");
+        this.reassignmentTimer = metrics.timer("rebalance_consumer_reassignment_seconds",
+                "Time to commit lost partitions and assign acquired ones");
+        metrics.gauge("kafka_last_poll_records", "Records returned by the last non-empty poll", () -> lastPollRecords);
+        metrics.gauge("kafka_handoff_last_latency_ms", "Wait for the last partition handoff", () -> lastHandoffLatency);
+        metrics.gauge("kafka_consumer_lag", "Records behind the log end per owned partition", "partition",
+                this::partitionLags);
     }
 
     @Override
     public void start() {
+        logger.info("Starting consumer {}", consumerId);
+        running = true;
+        executor.execute(this::pollRecords);
+        lagExecutor.scheduleWithFixedDelay(this::updateEndOffsets, lagInterval, lagInterval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void stop() {
-        logger.info("Shutting down current executor");
+        logger.info("Stopping consumer {}", consumerId);
+        running = false;
+        lagExecutor.execute(this::closeLagConsumer);
+        lagExecutor.shutdown();
         executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
@@ -53,61 +141,237 @@ public class TestKafkaConsumerImpl implements TestKafkaConsumer, Service {
     }
 
     @Override
-    public void setPartitions(Collection<Range> partitionRanges) {
-        logger.info("Request to update partitionRanges from {} to {}", topicPartitionRanges, partitionRanges);
-        stopPreviousExecutor();
-
-        Set<Integer> newPartitions = expandRanges(partitionRanges);
-
-        if (topicPartitionRanges != null) {
-            Set<Integer> oldPartitions = expandRanges(topicPartitionRanges);
-            int acquiredPartitionsCount = Sets.difference(newPartitions, oldPartitions).size();
-            int lostPartitionsCount = Sets.difference(oldPartitions, newPartitions).size();
-            logger.info("Consumer {} lost {} and acquired {} partitionRanges", consumerId, lostPartitionsCount, acquiredPartitionsCount);
-        }
+    public void setHandoff(PartitionHandoff handoff) {
+        this.handoff = handoff;
+    }
 
-        topicPartitionRanges = Sets.newHashSet(partitionRanges);
+    @Override
+    public void updatePartitions(OwnershipChange change, long version) {
+        logger.info("Request to update partitions of state {}: {}", version, change);
+        pendingChanges.add(new PendingChange(change, version));
+    }
 
-        Set<Integer> topicPartitions = expandRanges(topicPartitionRanges);
+    @Override
+    public int assignedPartitionsCount() {
+        return assignedPartitions.size();
+    }
 
-        Properties consumerProperties = KafkaProperties.consumerProperties(bootstrapServers);
-        final KafkaConsumer<String, String> kafkaConsumer = new KafkaConsumer<>(consumerProperties);
-        kafkaConsumer.assign(topicPartitions.stream().map(p -> new TopicPartition(topic, p)).collect(Collectors.toList()));
+    @Override
+    public void onHandoff(int partition, long offset) {
+        receivedHandoffs.add(new Handoff(partition, offset));
+    }
 
-        logger.info("Starting new consumer executor");
-        executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                ConsumerRecords<String, String> records = kafkaConsumer.poll(100);
+    private void pollRecords() {
+        KafkaConsumer<Integer, byte[]> kafkaConsumer = new KafkaConsumer<>(KafkaProperties.consumerProperties(bootstrapServers));
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                applyPendingPartitions(kafkaConsumer);
+                applyHandoffs(kafkaConsumer);
+                if (assignedPartitions.isEmpty()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(POLL_TIMEOUT));
+                    continue;
+                }
+                ConsumerRecords<Integer, byte[]> records = kafkaConsumer.poll(POLL_TIMEOUT);
                 if (!records.isEmpty()) {
                     logger.info("Received {} records from kafka. Listener is {}", records.count(), listener != null ? "not empty" : "empty");
-                }
-                for (ConsumerRecord<String, String> record : records) {
+                    recordPoll(records);
                     if (listener != null) {
-                        listener.consume(record.value());
+                        listener.consume(records);
                     }
                 }
             }
-            logger.info("Consumer thread interrupted");
-        });
+        } finally {
+            logger.info("Consumer thread stopped. Closing kafka consumer");
+            kafkaConsumer.close();
+        }
     }
 
-    private void stopPreviousExecutor() {
-        if (executor != null) {
-            executor.shutdown();
-            try {
-                executor.awaitTermination(1, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void applyPendingPartitions(KafkaConsumer<Integer, byte[]> kafkaConsumer) {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> acquiredPartitions = Maps.newHashMap();
+        Map<Integer, Long> lostPartitions = Maps.newHashMap();
+        PendingChange pending;
+        while ((pending = pendingChanges.poll()) != null) {
+            for (Integer partition : pending.change.lost()) {
+                if (acquiredPartitions.remove(partition) == null) {
+                    lostPartitions.put(partition, pending.version);
+                }
+            }
+            for (Integer partition : pending.change.gained()) {
+                if (lostPartitions.remove(partition) == null) {
+                    acquiredPartitions.put(partition, pending.version);
+                }
+            }
+        }
+        acquiredPartitions.keySet().removeAll(assignedPartitions);
+        lostPartitions.keySet().retainAll(assignedPartitions);
+        logger.info("Consumer {} lost {} and acquired {} partitions", consumerId, lostPartitions.keySet(),
+                acquiredPartitions.keySet());
+        if (acquiredPartitions.isEmpty() && lostPartitions.isEmpty()) {
+            return;
+        }
+        long reassignmentStart = System.nanoTime();
+        Set<Integer> newPartitions = ImmutableSet.copyOf(Sets.union(Sets.difference(assignedPartitions, lostPartitions.keySet()),
+                acquiredPartitions.keySet()));
+
+        releasePartitions(kafkaConsumer, lostPartitions);
+        kafkaConsumer.assign(newPartitions.stream().map(this::topicPartition).collect(Collectors.toList()));
+        assignedPartitions = newPartitions;
+
+        PartitionHandoff currentHandoff = handoff;
+        for (Map.Entry<Integer, Long> acquired : acquiredPartitions.entrySet()) {
+            int partition = acquired.getKey();
+            if (currentHandoff == null) {
+                seekToCommitted(kafkaConsumer, partition, -1);
+                continue;
+            }
+            kafkaConsumer.pause(topicPartition(partition));
+            awaitedHandoffs.put(partition, System.currentTimeMillis());
+            currentHandoff.acquire(partition, acquired.getValue(), this);
+        }
+        reassignmentTimer.recordSince(reassignmentStart);
+    }
+
+    private void releasePartitions(KafkaConsumer<Integer, byte[]> kafkaConsumer, Map<Integer, Long> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = Maps.newHashMap();
+        for (Integer partition : partitions.keySet()) {
+            if (awaitedHandoffs.remove(partition) != null) {
+                logger.info("Partition {} is lost before its handoff arrived", partition);
+                handoff.cancel(partition);
+                continue;
+            }
+            TopicPartition topicPartition = topicPartition(partition);
+            offsets.put(topicPartition, new OffsetAndMetadata(kafkaConsumer.position(topicPartition)));
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            kafkaConsumer.commitSync(offsets);
+            logger.info("Committed positions of lost partitions {}", offsets);
+        } catch (KafkaException e) {
+            logger.warn("Failed to commit positions of lost partitions {}", partitions.keySet(), e);
+        }
+        PartitionHandoff currentHandoff = handoff;
+        if (currentHandoff != null) {
+            offsets.forEach((topicPartition, offset) -> currentHandoff.release(topicPartition.partition(),
+                    offset.offset(), partitions.get(topicPartition.partition())));
+        }
+    }
+
+    private void applyHandoffs(KafkaConsumer<Integer, byte[]> kafkaConsumer) {
+        Handoff received;
+        while ((received = receivedHandoffs.poll()) != null) {
+            if (awaitedHandoffs.containsKey(received.partition)) {
+                resumePartition(kafkaConsumer, received.partition, received.offset);
+            }
+        }
+        if (awaitedHandoffs.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Integer> expired = awaitedHandoffs.entrySet().stream()
+                .filter(e -> now - e.getValue() > handoffTimeout)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        for (Integer partition : expired) {
+            logger.warn("Handoff of partition {} timed out. Falling back to committed offset", partition);
+            handoff.cancel(partition);
+            resumePartition(kafkaConsumer, partition, -1);
+        }
+    }
+
+    private void resumePartition(KafkaConsumer<Integer, byte[]> kafkaConsumer, int partition, long handoffOffset) {
+        long latency = System.currentTimeMillis() - awaitedHandoffs.remove(partition);
+        seekToCommitted(kafkaConsumer, partition, handoffOffset);
+        kafkaConsumer.resume(topicPartition(partition));
+        lastHandoffLatency = latency;
+        handoffs.increment();
+        logger.info("Partition {} resumed after handoff of {} ms", partition, latency);
+    }
+
+    private void seekToCommitted(KafkaConsumer<Integer, byte[]> kafkaConsumer, int partition, long handoffOffset) {
+        TopicPartition topicPartition = topicPartition(partition);
+        OffsetAndMetadata committed = kafkaConsumer.committed(topicPartition);
+        long offset = Math.max(handoffOffset, committed != null ? committed.offset() : -1);
+        if (offset >= 0) {
+            logger.info("Acquired partition {} resumes from offset {}", partition, offset);
+            kafkaConsumer.seek(topicPartition, offset);
+            updatePosition(partition, offset);
+        } else {
+            logger.info("Acquired partition {} has no committed offset. Reset policy is used", partition);
+        }
+    }
+
+    private void recordPoll(ConsumerRecords<Integer, byte[]> records) {
+        polls.increment();
+        recordsCount.add(records.count());
+        lastPollRecords = records.count();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<Integer, byte[]>> partitionRecords = records.records(partition);
+            for (ConsumerRecord<Integer, byte[]> record : partitionRecords) {
+                bytesCount.add(record.value().length);
+            }
+            updatePosition(partition.partition(), partitionRecords.get(partitionRecords.size() - 1).offset() + 1);
+        }
+    }
+
+    private void updatePosition(int partition, long position) {
+        if (partition < positions.length()) {
+            positions.set(partition, position);
+        }
+    }
+
+    private void updateEndOffsets() {
+        Set<Integer> partitions = assignedPartitions;
+        if (partitions.isEmpty()) {
+            return;
+        }
+        try {
+            if (lagConsumer == null) {
+                Properties properties = KafkaProperties.consumerProperties(bootstrapServers);
+                properties.put("enable.auto.commit", "false");
+                lagConsumer = new KafkaConsumer<>(properties);
+            }
+            List<TopicPartition> topicPartitions = partitions.stream().map(this::topicPartition).collect(Collectors.toList());
+            lagConsumer.assign(topicPartitions);
+            lagConsumer.seekToEnd(topicPartitions.toArray(new TopicPartition[topicPartitions.size()]));
+            for (TopicPartition topicPartition : topicPartitions) {
+                if (topicPartition.partition() < endOffsets.length()) {
+                    endOffsets.set(topicPartition.partition(), lagConsumer.position(topicPartition));
+                }
+            }
+        } catch (KafkaException e) {
+            logger.warn("Failed to read end offsets of partitions {}", partitions, e);
+        }
+    }
+
+    private void closeLagConsumer() {
+        if (lagConsumer != null) {
+            lagConsumer.close();
+            lagConsumer = null;
+        }
+    }
+
+    private Map<String, Long> partitionLags() {
+        Map<String, Long> lags = Maps.newTreeMap();
+        for (Integer partition : assignedPartitions) {
+            if (partition >= positions.length()) {
+                continue;
+            }
+            long position = positions.get(partition);
+            long endOffset = endOffsets.get(partition);
+            if (position != UNKNOWN_OFFSET && endOffset != UNKNOWN_OFFSET) {
+                lags.put(String.valueOf(partition), Math.max(0, endOffset - position));
             }
-            executor.shutdownNow();
         }
+        return lags;
     }
 
-    private Set<Integer> expandRanges(Collection<Range> ranges) {
-        Set<Integer> result = Sets.newHashSet();
-        ranges.forEach(r -> result.addAll(IntStream.range(r.from(), r.to()).boxed().collect(Collectors.toList())));
-        return result;
+    private TopicPartition topicPartition(int partition) {
+        return new TopicPartition(topic, partition);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(TestKafkaConsumerImpl.class);
@@ -1,5 +1,8 @@
 package kafka.impl;
 
+import com.google.common.collect.Maps;
+import common.network.DataPayloadCodec;
+import hashing.Partitioner;
 import kafka.TestKafkaProducer;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
@@ -9,29 +12,39 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
-import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TestKafkaProducerImpl implements TestKafkaProducer, Callback {
 
-    private final KafkaProducer<String, String> kafkaProducer;
+    private final KafkaProducer<Integer, byte[]> kafkaProducer;
     private final String topic;
-    private final int partitionsCount;
-    private final Random random = new Random(137);
+    private final Partitioner partitioner;
+    private final ConcurrentMap<Integer, AtomicLong> sequences = Maps.newConcurrentMap();
 
-    public TestKafkaProducerImpl(String bootstrapServers, String topic, int partitionsCount) {
+    public TestKafkaProducerImpl(String bootstrapServers, String topic, Partitioner partitioner) {
         Properties producerProperties = KafkaProperties.producerProperties(bootstrapServers);
         this.topic = topic;
-        this.partitionsCount = partitionsCount;
+        this.partitioner = partitioner;
         kafkaProducer = new KafkaProducer<>(producerProperties);
     }
 
     @Override
     public void produce(int accountId, int value) {
-        String stringValue = accountId + "|" + value;
-        int partition = Integer.hashCode(accountId) % partitionsCount;
-        logger.info("Publish value {} to client {} at partition {}", value, accountId, partition);
-        ProducerRecord<String, String> record = new ProducerRecord<>(topic, partition, stringValue, stringValue);
-        kafkaProducer.send(record, this);
+        produce(accountId, value, System.currentTimeMillis(), this);
+    }
+
+    @Override
+    public void produce(int accountId, int value, long timestamp, Callback callback) {
+        AtomicLong sequence = sequences.computeIfAbsent(accountId, id -> new AtomicLong());
+        int partition = partitioner.partition(accountId);
+        logger.debug("Publish value {} to client {} at partition {}", value, accountId, partition);
+        // sequence numbers of an account must reach its partition in order, even from several threads
+        synchronized (sequence) {
+            byte[] payload = DataPayloadCodec.encode(sequence.incrementAndGet(), timestamp, value);
+            ProducerRecord<Integer, byte[]> record = new ProducerRecord<>(topic, partition, accountId, payload);
+            kafkaProducer.send(record, callback);
+        }
     }
 
     @Override
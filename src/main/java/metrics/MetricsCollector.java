@@ -0,0 +1,7 @@
+package metrics;
+
+public interface MetricsCollector {
+    void family(String name, String type, String help);
+    // labels are already formatted as name="value" pairs, empty for unlabeled samples
+    void sample(String name, String labels, double value);
+}
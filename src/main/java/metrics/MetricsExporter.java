@@ -0,0 +1,6 @@
+package metrics;
+
+import common.Service;
+
+public interface MetricsExporter extends Service {
+}
@@ -0,0 +1,13 @@
+package metrics;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public interface MetricsRegistry {
+    Counter counter(String name, String help);
+    Timer timer(String name, String help);
+    void gauge(String name, String help, LongSupplier value);
+    void gauge(String name, String help, String label, Supplier<Map<String, Long>> values);
+    void collect(MetricsCollector collector);
+}
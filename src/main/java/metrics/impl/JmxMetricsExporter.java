@@ -0,0 +1,128 @@
+package metrics.impl;
+
+import com.google.common.collect.Maps;
+import metrics.MetricsCollector;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+public class JmxMetricsExporter implements MetricsExporter, DynamicMBean {
+
+    private static class Sample {
+        private final String help;
+        private final double value;
+
+        Sample(String help, double value) {
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    private final MetricsRegistry registry;
+    private final String objectName;
+    private ObjectName registeredName;
+
+    public JmxMetricsExporter(MetricsRegistry registry, String objectName) {
+        this.registry = registry;
+        this.objectName = objectName;
+    }
+
+    @Override
+    public void start() {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+            logger.info("Registered metrics MBean {}", objectName);
+        } catch (JMException e) {
+            logger.error("Failed to register metrics MBean {}", objectName, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            logger.warn("Failed to unregister metrics MBean {}", objectName, e);
+        }
+        registeredName = null;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Sample sample = samples().get(attribute);
+        if (sample == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return sample.value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Sample> samples = samples();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Sample sample = samples.get(attribute);
+            if (sample != null) {
+                list.add(new Attribute(attribute, sample.value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Sample> samples = samples();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[samples.size()];
+        int i = 0;
+        for (Map.Entry<String, Sample> entry : samples.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), Double.class.getName(), entry.getValue().help,
+                    true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Server metrics", attributes, null, null, null);
+    }
+
+    private Map<String, Sample> samples() {
+        Map<String, Sample> samples = Maps.newLinkedHashMap();
+        registry.collect(new MetricsCollector() {
+            private String help;
+
+            @Override
+            public void family(String name, String type, String help) {
+                this.help = help;
+            }
+
+            @Override
+            public void sample(String name, String labels, double value) {
+                samples.put(labels.isEmpty() ? name : name + "{" + labels + "}", new Sample(help, value));
+            }
+        });
+        return samples;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(JmxMetricsExporter.class);
+}
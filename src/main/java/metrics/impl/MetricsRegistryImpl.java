@@ -0,0 +1,132 @@
+package metrics.impl;
+
+import metrics.Counter;
+import metrics.MetricsCollector;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class MetricsRegistryImpl implements MetricsRegistry {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private interface Metric {
+        void collect(String name, MetricsCollector collector);
+    }
+
+    private static class CounterMetric implements Metric {
+        private final String help;
+        private final Counter counter = new Counter();
+
+        CounterMetric(String help) {
+            this.help = help;
+        }
+
+        @Override
+        public void collect(String name, MetricsCollector collector) {
+            collector.family(name, "counter", help);
+            collector.sample(name, "", counter.sum());
+        }
+    }
+
+    private static class TimerMetric implements Metric {
+        private final String help;
+        private final Timer timer = new Timer();
+
+        TimerMetric(String help) {
+            this.help = help;
+        }
+
+        @Override
+        public void collect(String name, MetricsCollector collector) {
+            collector.family(name, "summary", help);
+            collector.sample(name + "_count", "", timer.count());
+            collector.sample(name + "_sum", "", timer.totalNanos() / NANOS_PER_SECOND);
+            collector.family(name + "_last", "gauge", help + ", last run");
+            collector.sample(name + "_last", "", timer.lastNanos() / NANOS_PER_SECOND);
+        }
+    }
+
+    private static class GaugeMetric implements Metric {
+        private final String help;
+        private final LongSupplier value;
+
+        GaugeMetric(String help, LongSupplier value) {
+            this.help = help;
+            this.value = value;
+        }
+
+        @Override
+        public void collect(String name, MetricsCollector collector) {
+            collector.family(name, "gauge", help);
+            collector.sample(name, "", value.getAsLong());
+        }
+    }
+
+    private static class LabeledGaugeMetric implements Metric {
+        private final String help;
+        private final String label;
+        private final Supplier<Map<String, Long>> values;
+
+        LabeledGaugeMetric(String help, String label, Supplier<Map<String, Long>> values) {
+            this.help = help;
+            this.label = label;
+            this.values = values;
+        }
+
+        @Override
+        public void collect(String name, MetricsCollector collector) {
+            collector.family(name, "gauge", help);
+            for (Map.Entry<String, Long> entry : values.get().entrySet()) {
+                collector.sample(name, label + "=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+            }
+        }
+
+        private static String escape(String labelValue) {
+            return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Counter counter(String name, String help) {
+        return register(name, new CounterMetric(help), CounterMetric.class).counter;
+    }
+
+    @Override
+    public Timer timer(String name, String help) {
+        return register(name, new TimerMetric(help), TimerMetric.class).timer;
+    }
+
+    @Override
+    public void gauge(String name, String help, LongSupplier value) {
+        metrics.put(name, new GaugeMetric(help, value));
+    }
+
+    @Override
+    public void gauge(String name, String help, String label, Supplier<Map<String, Long>> values) {
+        metrics.put(name, new LabeledGaugeMetric(help, label, values));
+    }
+
+    @Override
+    public void collect(MetricsCollector collector) {
+        metrics.forEach((name, metric) -> metric.collect(name, collector));
+    }
+
+    private <T extends Metric> T register(String name, T metric, Class<T> type) {
+        Metric registered = metrics.putIfAbsent(name, metric);
+        if (registered == null) {
+            return metric;
+        }
+        if (!type.isInstance(registered)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered with another type");
+        }
+        return type.cast(registered);
+    }
+}
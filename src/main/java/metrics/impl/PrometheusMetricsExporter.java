@@ -0,0 +1,95 @@
+package metrics.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.MetricsCollector;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PrometheusMetricsExporter implements MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final String host;
+    private final int port;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("metrics-http").setDaemon(true).build());
+    private HttpServer httpServer;
+
+    public PrometheusMetricsExporter(MetricsRegistry registry, String host, int port) {
+        this.registry = registry;
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+            httpServer.createContext("/metrics", this::handle);
+            httpServer.setExecutor(executor);
+            httpServer.start();
+            logger.info("Serving metrics on http://{}:{}/metrics", host, port);
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint on {}:{}", host, port, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    public String render() {
+        StringBuilder text = new StringBuilder();
+        registry.collect(new MetricsCollector() {
+            @Override
+            public void family(String name, String type, String help) {
+                text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+                text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            }
+
+            @Override
+            public void sample(String name, String labels, double value) {
+                text.append(name);
+                if (!labels.isEmpty()) {
+                    text.append('{').append(labels).append('}');
+                }
+                text.append(' ').append(format(value)).append('\n');
+            }
+        });
+        return text.toString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusMetricsExporter.class);
+}
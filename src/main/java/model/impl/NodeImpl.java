@@ -2,6 +2,8 @@ package model.impl;
 
 import model.Node;
 
+import java.util.Objects;
+
 public class NodeImpl implements Node {
 
     private int id;
@@ -33,6 +35,23 @@ public class NodeImpl implements Node {
         return port;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        NodeImpl node = (NodeImpl) o;
+        return id == node.id && port == node.port && Objects.equals(host, node.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, host, port);
+    }
+
     @Override
     public String toString() {
         return id + " " + host + ":" + port;
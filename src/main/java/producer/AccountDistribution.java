@@ -0,0 +1,7 @@
+package producer;
+
+import java.util.Random;
+
+public interface AccountDistribution {
+    int next(Random random);
+}
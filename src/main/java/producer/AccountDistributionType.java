@@ -0,0 +1,9 @@
+package producer;
+
+public enum AccountDistributionType {
+    UNIFORM, ZIPFIAN, HOT_SET;
+
+    public static AccountDistributionType fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
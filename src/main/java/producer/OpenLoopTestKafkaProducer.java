@@ -0,0 +1,127 @@
+package producer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import common.Service;
+import kafka.TestKafkaProducer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends messages on a fixed schedule regardless of how long previous sends took. Every message is stamped
+ * with the time it was scheduled for rather than the time it was actually sent, so a stalled producer shows
+ * up as latency on the clients instead of silently lowering the rate.
+ */
+public class OpenLoopTestKafkaProducer implements Service {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMicros(10);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int rate;
+    private final int threadsCount;
+    private final long reportInterval;
+    private final AccountDistribution distribution;
+
+    @Autowired
+    private TestKafkaProducer producer;
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger counter = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAccumulator maxScheduleLag = new LongAccumulator(Math::max, 0);
+    private final Recorder sendLatency = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private Histogram intervalHistogram;
+    private volatile boolean running;
+    private long startNanos;
+    private long startMillis;
+    private long lastReportNanos;
+
+    public OpenLoopTestKafkaProducer(int rate, int threadsCount, long reportInterval,
+                                     AccountDistribution distribution) {
+        this.rate = rate;
+        this.threadsCount = threadsCount;
+        this.reportInterval = reportInterval;
+        this.distribution = distribution;
+        this.workers = Executors.newFixedThreadPool(threadsCount,
+                new ThreadFactoryBuilder().setNameFormat("producer-%d").build());
+    }
+
+    @Override
+    public void start() {
+        logger.info("Producing {} messages per second from {} threads", rate, threadsCount);
+        running = true;
+        startNanos = System.nanoTime();
+        startMillis = System.currentTimeMillis();
+        lastReportNanos = startNanos;
+        for (int worker = 0; worker < threadsCount; worker++) {
+            int workerId = worker;
+            workers.execute(() -> produce(workerId));
+        }
+        reporter.scheduleAtFixedRate(this::report, reportInterval, reportInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.shutdownNow();
+        reporter.shutdown();
+    }
+
+    private void produce(int workerId) {
+        double nanosPerMessage = NANOS_PER_SECOND / rate;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long message = workerId; running && !Thread.currentThread().isInterrupted(); message += threadsCount) {
+            long intendedNanos = startNanos + (long) (message * nanosPerMessage);
+            long now = System.nanoTime();
+            while (now < intendedNanos) {
+                LockSupport.parkNanos(intendedNanos - now);
+                now = System.nanoTime();
+            }
+            maxScheduleLag.accumulate(now - intendedNanos);
+            long intendedMillis = startMillis + TimeUnit.NANOSECONDS.toMillis(intendedNanos - startNanos);
+            producer.produce(distribution.next(random), counter.incrementAndGet(), intendedMillis,
+                    (metadata, exception) -> onAcknowledged(intendedNanos, exception));
+            sent.increment();
+        }
+    }
+
+    private void onAcknowledged(long intendedNanos, Exception exception) {
+        if (exception != null) {
+            failed.increment();
+            return;
+        }
+        acknowledged.increment();
+        long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+        sendLatency.recordValue(Math.min(Math.max(0, latency), HIGHEST_TRACKABLE_LATENCY));
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        double seconds = (now - lastReportNanos) / NANOS_PER_SECOND;
+        lastReportNanos = now;
+        intervalHistogram = sendLatency.getIntervalHistogram(intervalHistogram);
+        logger.info("Target {} msg/s, sent {} msg/s, acknowledged {} msg/s, {} failed, max schedule lag {} ms. "
+                        + "Acknowledged after intended send time: p50 {} us, p99 {} us, p999 {} us, max {} us",
+                rate, Math.round(sent.sumThenReset() / seconds), Math.round(acknowledged.sumThenReset() / seconds),
+                failed.sumThenReset(), TimeUnit.NANOSECONDS.toMillis(maxScheduleLag.getThenReset()),
+                intervalHistogram.getValueAtPercentile(50), intervalHistogram.getValueAtPercentile(99),
+                intervalHistogram.getValueAtPercentile(99.9), intervalHistogram.getMaxValue());
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenLoopTestKafkaProducer.class);
+}
@@ -0,0 +1,24 @@
+package producer.impl;
+
+import producer.AccountDistribution;
+import producer.AccountDistributionType;
+
+public final class AccountDistributionFactory {
+
+    private AccountDistributionFactory() {
+    }
+
+    public static AccountDistribution create(AccountDistributionType type, int accountsCount, double zipfianTheta,
+                                             int hotAccountsCount, double hotShare, long burstPeriod,
+                                             long burstDuration) {
+        switch (type) {
+            case ZIPFIAN:
+                return new ZipfianDistribution(accountsCount, zipfianTheta);
+            case HOT_SET:
+                return new HotSetDistribution(accountsCount, hotAccountsCount, hotShare, burstPeriod, burstDuration);
+            case UNIFORM:
+            default:
+                return new UniformDistribution(accountsCount);
+        }
+    }
+}
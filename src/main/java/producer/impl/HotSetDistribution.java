@@ -0,0 +1,39 @@
+package producer.impl;
+
+import producer.AccountDistribution;
+
+import java.util.Random;
+
+/**
+ * Uniform traffic with periodic bursts: during the first burstDuration ms of every burstPeriod ms,
+ * hotShare of the messages go to the first hotAccountsCount accounts.
+ */
+public class HotSetDistribution implements AccountDistribution {
+
+    private final int accountsCount;
+    private final int hotAccountsCount;
+    private final double hotShare;
+    private final long burstPeriod;
+    private final long burstDuration;
+
+    public HotSetDistribution(int accountsCount, int hotAccountsCount, double hotShare, long burstPeriod,
+                              long burstDuration) {
+        this.accountsCount = accountsCount;
+        this.hotAccountsCount = Math.max(1, Math.min(hotAccountsCount, accountsCount));
+        this.hotShare = hotShare;
+        this.burstPeriod = burstPeriod;
+        this.burstDuration = burstDuration;
+    }
+
+    @Override
+    public int next(Random random) {
+        if (inBurst() && random.nextDouble() < hotShare) {
+            return random.nextInt(hotAccountsCount);
+        }
+        return random.nextInt(accountsCount);
+    }
+
+    private boolean inBurst() {
+        return burstDuration >= burstPeriod || System.currentTimeMillis() % burstPeriod < burstDuration;
+    }
+}
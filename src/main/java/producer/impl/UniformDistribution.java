@@ -0,0 +1,19 @@
+package producer.impl;
+
+import producer.AccountDistribution;
+
+import java.util.Random;
+
+public class UniformDistribution implements AccountDistribution {
+
+    private final int accountsCount;
+
+    public UniformDistribution(int accountsCount) {
+        this.accountsCount = accountsCount;
+    }
+
+    @Override
+    public int next(Random random) {
+        return random.nextInt(accountsCount);
+    }
+}
@@ -0,0 +1,47 @@
+package producer.impl;
+
+import producer.AccountDistribution;
+
+import java.util.Random;
+
+/**
+ * Zipfian ranks over accounts, account 0 being the most popular one. Uses the rejection-free generator from
+ * Gray et al., "Quickly Generating Billion-Record Synthetic Databases", so next() is O(1) after O(n) setup.
+ */
+public class ZipfianDistribution implements AccountDistribution {
+
+    private final int accountsCount;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    public ZipfianDistribution(int accountsCount, double theta) {
+        this.accountsCount = accountsCount;
+        this.theta = theta;
+        this.zetaN = zeta(accountsCount, theta);
+        this.alpha = 1 / (1 - theta);
+        this.eta = (1 - Math.pow(2.0 / accountsCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    @Override
+    public int next(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < 1 + Math.pow(0.5, theta)) {
+            return Math.min(1, accountsCount - 1);
+        }
+        return Math.min((int) (accountsCount * Math.pow(eta * u - eta + 1, alpha)), accountsCount - 1);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
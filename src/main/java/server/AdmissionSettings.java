@@ -0,0 +1,36 @@
+package server;
+
+public class AdmissionSettings {
+
+    private final int maxConnections;
+    private final int acceptRate;
+    private final int backlog;
+    private final int acceptBatch;
+
+    public AdmissionSettings(int maxConnections, int acceptRate, int backlog, int acceptBatch) {
+        this.maxConnections = maxConnections;
+        this.acceptRate = acceptRate;
+        this.backlog = backlog;
+        this.acceptBatch = Math.max(1, acceptBatch);
+    }
+
+    // connections over the limit are accepted and closed at once, 0 means unlimited
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    // accepts per second, the rest wait in the listen backlog. 0 means unlimited
+    public int acceptRate() {
+        return acceptRate;
+    }
+
+    // listen backlog, 0 keeps the OS default
+    public int backlog() {
+        return backlog;
+    }
+
+    // most connections accepted per select
+    public int acceptBatch() {
+        return acceptBatch;
+    }
+}
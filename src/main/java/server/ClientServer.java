@@ -1,11 +1,18 @@
 package server;
 
+import hashing.RoutingSnapshot;
 import model.Node;
 
+import java.nio.ByteBuffer;
+
 public interface ClientServer {
     void sendResolutionInfo(int clientId, Node node);
     void sendUnknownResolutionInfo(int clientId);
-    void sendMessage(String message);
+    void sendRoutingSnapshot(RoutingSnapshot snapshot);
+    void sendSubscribed(int clientId);
+    void sendMoved(int clientId, Node node);
+    void sendUnsubscribed(int clientId);
+    void sendMessage(int clientId, long sequence, ByteBuffer payload);
     void doRead();
     int doWrite();
     void close();
@@ -4,6 +4,8 @@ import server.impl.ClientServerImpl;
 
 public interface ClientServerListener {
     void onWriteSuffer(ClientServerImpl clientServer);
-    void onResolveServer(ClientServerImpl clientServer, int clientId);
+    void onResolveServer(ClientServerImpl clientServer, int clientId, long knownRoutingVersion, long lastSequence);
+    void onSubscribe(ClientServerImpl clientServer, int clientId, long knownRoutingVersion, long lastSequence);
+    void onUnsubscribe(ClientServerImpl clientServer, int clientId);
     void onClientDisconnect(ClientServerImpl clientServer);
 }
@@ -0,0 +1,14 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.function.ObjLongConsumer;
+
+public interface Mailbox {
+    void append(int clientId, long sequence, ByteBuffer payload);
+
+    /**
+     * Passes messages of the client newer than afterSequence to the consumer, oldest first.
+     * Returns false if some of them were already evicted.
+     */
+    boolean replay(int clientId, long afterSequence, ObjLongConsumer<ByteBuffer> consumer);
+}
@@ -1,10 +1,13 @@
 package server;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 public interface Server {
     Collection<Integer> connectedClients();
-    boolean containsClient(int clientId);
-    void sendMessage(int clientId, String message);
-    void disconnectClient(int clientId);
+    void sendMessage(int clientId, long sequence, ByteBuffer payload);
+    void flush();
+    void disconnectPartitions(Collection<Integer> partitions);
+    boolean awaitDrained(long timeoutMillis) throws InterruptedException;
+    void leave();
 }
@@ -1,31 +1,45 @@
 package server;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import common.Service;
+import common.network.NetworkSettings;
+import common.network.RoutingSnapshotCodec;
 import coordination.CoordinatedNode;
 import coordination.Coordinator;
 import coordination.CoordinatorListener;
 import coordination.impl.CoordinatedNodeImpl;
 import hashing.HashRing;
+import hashing.OwnershipChange;
+import hashing.RoutingSnapshot;
+import hashing.RoutingTable;
 import kafka.TestKafkaConsumer;
 import kafka.TestKafkaConsumerListener;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import model.Node;
-import model.Range;
 import model.impl.NodeImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import server.impl.ServerImpl;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ServerApplication implements CoordinatorListener, TestKafkaConsumerListener, ServerContainer, Service {
 
+    private static final long LEAVE_CHECK_PERIOD = 50;
+
     private Server server;
 
     @Autowired
@@ -46,19 +60,46 @@ public class ServerApplication implements CoordinatorListener, TestKafkaConsumer
     @Autowired
     private Integer port;
 
-    private Multimap<Integer, Integer> hashRingState;
-    private Map<Integer, Node> latestCoordinationInfo = Maps.newHashMap();
+    @Autowired
+    private NetworkSettings networkSettings;
+
+    @Autowired
+    private ServerSettings serverSettings;
+
+    @Autowired
+    private AdmissionSettings admissionSettings;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @Autowired
+    private List<MetricsExporter> metricsExporters;
+
+    private Timer ringComputeTimer;
+    private Timer clientSweepTimer;
+
+    private CoordinatedNode coordinatedNode;
+    private volatile boolean leaving;
+
+    private final Map<Integer, CoordinatedNode> nodes = Maps.newHashMap();
+    private volatile Map<Integer, Node> latestCoordinationInfo = ImmutableMap.of();
+    private volatile RoutingSnapshot routingSnapshot;
 
     @Override
     public void start() {
         logger.info("Starting application");
-        server = new ServerImpl(host, port, this);
+        ringComputeTimer = metrics.timer("rebalance_ring_compute_seconds", "Time to rebuild the hash ring and routing snapshot");
+        clientSweepTimer = metrics.timer("rebalance_client_sweep_seconds", "Time to disconnect clients of lost partitions");
+        metricsExporters.forEach(MetricsExporter::start);
+        server = new ServerImpl(host, port, this, networkSettings, serverSettings, admissionSettings,
+                hashRing.routingTable().partitionsCount(), metrics);
         Collection<Integer> splitPoints = hashRing.generateSplitPoints(nodeId);
         Node node = new NodeImpl(nodeId, host, port);
-        CoordinatedNode coordinatedNode = new CoordinatedNodeImpl(node, splitPoints);
+        coordinatedNode = new CoordinatedNodeImpl(node, splitPoints);
         coordinator.join(coordinatedNode);
         coordinator.subscribe(this);
         consumer.setListener(this);
+        consumer.setHandoff(coordinator);
 
         coordinator.start();
         consumer.start();
@@ -67,23 +108,76 @@ public class ServerApplication implements CoordinatorListener, TestKafkaConsumer
     @Override
     public void stop() {
         logger.warn("Stopping application");
+        leaving = true;
+        server.leave();
+        coordinator.leave(coordinatedNode);
+        try {
+            awaitPartitionsReleased();
+            server.disconnectPartitions(allPartitions());
+            if (!server.awaitDrained(serverSettings.drainWindow() + serverSettings.leaveTimeout())) {
+                logger.warn("Clients were not drained in time");
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while draining clients");
+            Thread.currentThread().interrupt();
+        }
         consumer.stop();
         coordinator.stop();
+        metricsExporters.forEach(MetricsExporter::stop);
     }
 
     @Override
-    public void onStateUpdate(Collection<CoordinatedNode> nodes) {
-        latestCoordinationInfo.clear();
-        nodes.stream().forEach(n -> latestCoordinationInfo.put(n.id(), n));
-        logger.info("Received state update {}", nodes);
-        hashRingState = buildCoordinationState(nodes);
-        updateConsumerPartitions(hashRingState);
-        disconnectNotOwnedClients(hashRingState);
+    public void onStateUpdate(Collection<CoordinatedNode> added, Collection<CoordinatedNode> removed, long version) {
+        logger.info("Received state update {}: added {}, removed {}", version, added, removed);
+        removed.forEach(node -> nodes.remove(node.id()));
+        added.forEach(node -> nodes.put(node.id(), node));
+        latestCoordinationInfo = ImmutableMap.copyOf(nodes);
+
+        long ringComputeStart = System.nanoTime();
+        RoutingTable previousRoutingTable = hashRing.routingTable();
+        hashRing.update(buildCoordinationState());
+        RoutingTable routingTable = hashRing.routingTable();
+        routingSnapshot = RoutingSnapshotCodec.snapshot(version, routingTable, latestCoordinationInfo);
+        OwnershipChange change = routingTable.diff(previousRoutingTable, nodeId);
+        ringComputeTimer.recordSince(ringComputeStart);
+        logger.info("Ownership change of state {}: {}", version, change);
+        if (change.isEmpty()) {
+            return;
+        }
+        consumer.updatePartitions(change, version);
+        if (leaving) {
+            logger.info("Clients of lost partitions are drained once the handoff completes");
+            return;
+        }
+        long clientSweepStart = System.nanoTime();
+        server.disconnectPartitions(change.lost());
+        clientSweepTimer.recordSince(clientSweepStart);
+    }
+
+    private void awaitPartitionsReleased() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + serverSettings.leaveTimeout();
+        while (consumer.assignedPartitionsCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                logger.warn("{} partitions were not handed off in time", consumer.assignedPartitionsCount());
+                return;
+            }
+            Thread.sleep(LEAVE_CHECK_PERIOD);
+        }
+        logger.info("All partitions are handed off");
+    }
+
+    private Collection<Integer> allPartitions() {
+        int partitionsCount = hashRing.routingTable().partitionsCount();
+        Collection<Integer> partitions = Lists.newArrayListWithCapacity(partitionsCount);
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            partitions.add(partition);
+        }
+        return partitions;
     }
 
-    private Multimap<Integer, Integer> buildCoordinationState(Collection<CoordinatedNode> nodes) {
+    private Multimap<Integer, Integer> buildCoordinationState() {
         Multimap<Integer, Integer> coordinationState = ArrayListMultimap.create();
-        for (CoordinatedNode node : nodes) {
+        for (CoordinatedNode node : nodes.values()) {
             for (Integer splitPoints : node.splitPoints()) {
                 coordinationState.put(node.id(), splitPoints);
             }
@@ -91,39 +185,37 @@ public class ServerApplication implements CoordinatorListener, TestKafkaConsumer
         return coordinationState;
     }
 
-    private void updateConsumerPartitions(Multimap<Integer, Integer> coordinationState) {
-        Collection<Range> ownedPartitions = hashRing.getPartitions(nodeId, coordinationState);
-        logger.info("Updating owned partition of consumer to {}", ownedPartitions);
-        consumer.setPartitions(ownedPartitions);
+    @Override
+    public void consume(ConsumerRecords<Integer, byte[]> records) {
+        for (TopicPartition partition : records.partitions()) {
+            for (ConsumerRecord<Integer, byte[]> record : records.records(partition)) {
+                Integer clientId = record.key();
+                if (clientId != null && record.value() != null) {
+                    server.sendMessage(clientId, record.offset(), ByteBuffer.wrap(record.value()));
+                }
+            }
+        }
+        server.flush();
     }
 
-    private void disconnectNotOwnedClients(Multimap<Integer, Integer> coordinationState) {
-        List<Integer> notOwnedClients = server.connectedClients().stream()
-                .filter(client -> !hashRing.hash(client, coordinationState).equals(nodeId))
-                .collect(Collectors.toList());
-        logger.info("Disconnecting {} not owned clients", notOwnedClients.size());
-        notOwnedClients.stream().forEach(client -> server.disconnectClient(client));
+    @Override
+    public int partition(int clientId) {
+        return hashRing.routingTable().partition(clientId);
     }
 
     @Override
-    public void consume(String record) {
-        String[] parts = record.split("\\|");
-        int clientId = Integer.parseInt(parts[0]);
-        String message = parts[1];
-        logger.info("received record {} from consumer", record);
-        if (server.containsClient(clientId)) {
-            server.sendMessage(clientId, message);
-        }
+    public RoutingSnapshot routingSnapshot() {
+        return routingSnapshot;
     }
 
     @Override
     public Node getNode(int clientId) {
         logger.info("Client {} requests owner node", clientId);
-        if (latestCoordinationInfo == null) {
+        Integer nodeId = hashRing.hash(clientId);
+        if (nodeId == null) {
             logger.info("Don't have coordination info. Owner request failure");
             return null;
         }
-        Integer nodeId = hashRing.hash(clientId, hashRingState);
         Node ownerNode = latestCoordinationInfo.get(nodeId);
         logger.info("Resolving client {} to {} node", clientId, nodeId);
         return ownerNode;
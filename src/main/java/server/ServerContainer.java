@@ -1,8 +1,10 @@
 package server;
 
+import hashing.RoutingSnapshot;
 import model.Node;
 
 public interface ServerContainer {
     Node getNode(int clientId);
-
+    int partition(int clientId);
+    RoutingSnapshot routingSnapshot();
 }
@@ -1,5 +1,7 @@
 package server;
 
 public interface ServerReaderListener {
-    void onResolveServer(int clientId);
+    void onResolveServer(int clientId, long knownRoutingVersion, long lastSequence);
+    void onSubscribe(int clientId, long knownRoutingVersion, long lastSequence);
+    void onUnsubscribe(int clientId);
 }
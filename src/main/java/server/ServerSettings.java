@@ -0,0 +1,72 @@
+package server;
+
+public class ServerSettings {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_LOADED;
+
+        public static Balancing fromString(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final int reactorsCount;
+    private final Balancing balancing;
+    private final boolean routingSnapshot;
+    private final int mailboxCapacity;
+    private final long mailboxTtl;
+    private final int mailboxMaxMessages;
+    private final long drainWindow;
+    private final int drainRate;
+    private final long leaveTimeout;
+
+    public ServerSettings(int reactorsCount, Balancing balancing, boolean routingSnapshot, int mailboxCapacity,
+                          long mailboxTtl, int mailboxMaxMessages, long drainWindow, int drainRate,
+                          long leaveTimeout) {
+        this.reactorsCount = reactorsCount > 0 ? reactorsCount : Runtime.getRuntime().availableProcessors();
+        this.balancing = balancing;
+        this.routingSnapshot = routingSnapshot;
+        this.mailboxCapacity = mailboxCapacity;
+        this.mailboxTtl = mailboxTtl;
+        this.mailboxMaxMessages = mailboxMaxMessages;
+        this.drainWindow = drainWindow;
+        this.drainRate = drainRate;
+        this.leaveTimeout = leaveTimeout;
+    }
+
+    public int reactorsCount() {
+        return reactorsCount;
+    }
+
+    public Balancing balancing() {
+        return balancing;
+    }
+
+    public boolean routingSnapshot() {
+        return routingSnapshot;
+    }
+
+    public int mailboxCapacity() {
+        return mailboxCapacity;
+    }
+
+    public long mailboxTtl() {
+        return mailboxTtl;
+    }
+
+    public int mailboxMaxMessages() {
+        return mailboxMaxMessages;
+    }
+
+    public long drainWindow() {
+        return drainWindow;
+    }
+
+    public int drainRate() {
+        return drainRate;
+    }
+
+    public long leaveTimeout() {
+        return leaveTimeout;
+    }
+}
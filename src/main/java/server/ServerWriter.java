@@ -2,8 +2,15 @@ package server;
 
 import common.network.Writer;
 
+import java.nio.ByteBuffer;
+
 public interface ServerWriter extends Writer {
-    int sendMessage(String message);
+    int sendMessage(int clientId, long sequence, ByteBuffer payload);
+    int queueFrame(ByteBuffer frame);
     int sendResolutionInfo(String host, int port);
-    int sendUnknownResolutionInfo();
+    int sendUnknownResolutionInfo(int clientId);
+    int sendRoutingSnapshot(byte[] snapshot);
+    int sendSubscribed(int clientId);
+    int sendMoved(int clientId, String host, int port);
+    int sendUnsubscribed(int clientId);
 }
@@ -0,0 +1,106 @@
+package server.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves clients away at a pace that spreads every pending move over the drain window, never exceeding the rate
+ * limit. A new batch restarts the window for everything still pending.
+ */
+class ClientDrainer {
+
+    interface Mover {
+        void move(ClientServerImpl clientServer, int clientId);
+    }
+
+    private static class Move {
+        private final ClientServerImpl clientServer;
+        private final int clientId;
+
+        Move(ClientServerImpl clientServer, int clientId) {
+            this.clientServer = clientServer;
+            this.clientId = clientId;
+        }
+    }
+
+    private static final long TICK = 10;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("drainer").setDaemon(true).build());
+    private final Queue<Move> pending = new ArrayDeque<>();
+    private final Mover mover;
+    private final long window;
+    private final int rate;
+    private long deadline;
+    private long lastTick;
+    private double allowance;
+
+    ClientDrainer(long window, int rate, Mover mover) {
+        this.window = window;
+        this.rate = rate;
+        this.mover = mover;
+        executor.scheduleWithFixedDelay(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void add(ClientServerImpl clientServer, int clientId) {
+        pending.add(new Move(clientServer, clientId));
+        deadline = System.currentTimeMillis() + window;
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    synchronized boolean awaitDrained(long timeout) throws InterruptedException {
+        long awaitDeadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (!pending.isEmpty() && remaining > 0) {
+            wait(remaining);
+            remaining = awaitDeadline - System.currentTimeMillis();
+        }
+        return pending.isEmpty();
+    }
+
+    private void tick() {
+        try {
+            moveDue();
+        } catch (RuntimeException e) {
+            logger.error("Error while draining clients", e);
+        }
+    }
+
+    private synchronized void moveDue() {
+        long now = System.currentTimeMillis();
+        long elapsed = lastTick == 0 ? TICK : now - lastTick;
+        lastTick = now;
+        if (pending.isEmpty()) {
+            allowance = 0;
+            notifyAll();
+            return;
+        }
+        long remaining = Math.max(TICK, deadline - now);
+        int due = (int) Math.min(pending.size(), (pending.size() * TICK + remaining - 1) / remaining);
+        if (rate > 0) {
+            allowance = Math.min(allowance + rate * elapsed / 1000.0, Math.max(1.0, rate * TICK / 1000.0));
+            due = Math.min(due, (int) allowance);
+            allowance -= due;
+        }
+        for (int i = 0; i < due; i++) {
+            Move move = pending.poll();
+            mover.move(move.clientServer, move.clientId);
+        }
+        if (pending.isEmpty()) {
+            logger.info("All moved clients are drained");
+            notifyAll();
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientDrainer.class);
+}
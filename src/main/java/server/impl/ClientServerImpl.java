@@ -1,6 +1,11 @@
 package server.impl;
 
+import common.collections.IntHashSet;
+import common.network.BufferPool;
+import common.network.NetworkSettings;
 import common.network.Reader;
+import common.network.WriteListener;
+import hashing.RoutingSnapshot;
 import model.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,19 +14,31 @@ import server.ClientServerListener;
 import server.ServerReaderListener;
 import server.ServerWriter;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
-public class ClientServerImpl implements ClientServer, ServerReaderListener {
+public class ClientServerImpl implements ClientServer, ServerReaderListener, WriteListener {
 
     private final Reader reader;
     private final ServerWriter writer;
     private final ClientServerListener listener;
+    private final Reactor reactor;
+    private final String remoteAddress;
+    private SelectionKey selectionKey;
+    private final IntHashSet clientIds = new IntHashSet(4);
+    private boolean multiplexed;
+    private boolean closed;
+    private boolean flushPending;
+    private boolean closeWhenFlushed;
 
-    public ClientServerImpl(SocketChannel channel, ClientServerListener listener) {
-        logger.info("Create server to client connection");
-        writer = new ServerWriterImpl(channel);
-        reader = new ServerReaderImpl(channel, this);
+    public ClientServerImpl(SocketChannel channel, ClientServerListener listener, Reactor reactor,
+                            BufferPool bufferPool, NetworkSettings settings) {
+        logger.info("Create server to client connection in reactor {}", reactor.id());
+        this.reactor = reactor;
+        this.remoteAddress = String.valueOf(channel.socket().getRemoteSocketAddress());
+        writer = new ServerWriterImpl(channel, bufferPool, settings, this);
+        reader = new ServerReaderImpl(channel, this, bufferPool, settings);
         this.listener = listener;
     }
 
@@ -34,13 +51,48 @@ public class ClientServerImpl implements ClientServer, ServerReaderListener {
     @Override
     public void sendUnknownResolutionInfo(int clientId) {
         logger.info("Request to send {} to {} as resolution info", "null", clientId);
-        handleWriteResult(writer.sendUnknownResolutionInfo());
+        handleWriteResult(writer.sendUnknownResolutionInfo(clientId));
     }
 
     @Override
-    public void sendMessage(String message) {
-        logger.info("Request to send {} message to client", message);
-        handleWriteResult(writer.sendMessage(message));
+    public void sendRoutingSnapshot(RoutingSnapshot snapshot) {
+        logger.info("Request to send routing snapshot version {}", snapshot.version());
+        handleWriteResult(writer.sendRoutingSnapshot(snapshot.encoded()));
+    }
+
+    @Override
+    public void sendSubscribed(int clientId) {
+        handleWriteResult(writer.sendSubscribed(clientId));
+    }
+
+    @Override
+    public void sendMoved(int clientId, Node node) {
+        handleWriteResult(node == null ? writer.sendMoved(clientId, null, 0)
+                : writer.sendMoved(clientId, node.host(), node.port()));
+    }
+
+    @Override
+    public void sendUnsubscribed(int clientId) {
+        handleWriteResult(writer.sendUnsubscribed(clientId));
+    }
+
+    @Override
+    public void sendMessage(int clientId, long sequence, ByteBuffer payload) {
+        handleWriteResult(writer.sendMessage(clientId, sequence, payload));
+    }
+
+    boolean queueFrame(ByteBuffer frame) {
+        return handleWriteResult(writer.queueFrame(frame)) != -1;
+    }
+
+    @Override
+    public void onWritePending() {
+        reactor.requestWrite(this);
+    }
+
+    @Override
+    public void onWriteSuffer() {
+        listener.onWriteSuffer(this);
     }
 
     @Override
@@ -56,24 +108,95 @@ public class ClientServerImpl implements ClientServer, ServerReaderListener {
         return handleWriteResult(writer.performWrite());
     }
 
-    private int handleWriteResult(int writeBytes) {
-        if (writeBytes == 0) {
-            listener.onWriteSuffer(this);
+    private int handleWriteResult(int pendingBytes) {
+        if (pendingBytes == -1) {
+            listener.onClientDisconnect(this);
         }
-        return writeBytes;
+        return pendingBytes;
     }
 
     @Override
     public void close() {
         logger.info("Request to close client server connection");
+        closed = true;
         reader.close();
         writer.close();
     }
 
+    int pendingBytes() {
+        return writer.pendingBytes();
+    }
+
+    String remoteAddress() {
+        return remoteAddress;
+    }
+
+    Reactor reactor() {
+        return reactor;
+    }
+
+    SelectionKey selectionKey() {
+        return selectionKey;
+    }
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isFlushPending() {
+        return flushPending;
+    }
+
+    void setFlushPending(boolean flushPending) {
+        this.flushPending = flushPending;
+    }
+
+    boolean isCloseWhenFlushed() {
+        return closeWhenFlushed;
+    }
+
+    void setCloseWhenFlushed(boolean closeWhenFlushed) {
+        this.closeWhenFlushed = closeWhenFlushed;
+    }
+
+    boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    void setMultiplexed(boolean multiplexed) {
+        this.multiplexed = multiplexed;
+    }
+
+    int[] clientIds() {
+        return clientIds.toArray();
+    }
+
+    boolean addClientId(int clientId) {
+        return clientIds.add(clientId);
+    }
+
+    boolean removeClientId(int clientId) {
+        return clientIds.remove(clientId);
+    }
+
     @Override
-    public void onResolveServer(int clientId) {
+    public void onResolveServer(int clientId, long knownRoutingVersion, long lastSequence) {
         logger.info("Client {} requests resolution info", clientId);
-        listener.onResolveServer(this, clientId);
+        listener.onResolveServer(this, clientId, knownRoutingVersion, lastSequence);
+    }
+
+    @Override
+    public void onSubscribe(int clientId, long knownRoutingVersion, long lastSequence) {
+        listener.onSubscribe(this, clientId, knownRoutingVersion, lastSequence);
+    }
+
+    @Override
+    public void onUnsubscribe(int clientId) {
+        listener.onUnsubscribe(this, clientId);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ClientServerImpl.class);
@@ -0,0 +1,193 @@
+package server.impl;
+
+import common.collections.IntLongHashMap;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.Mailbox;
+
+import java.nio.ByteBuffer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Ring log in a single direct buffer: [int length][int clientId][long previous][long sequence][long storedAt][payload],
+ * aligned to 8 bytes. Entries of a client are chained backwards through previous, the index keeps the newest one.
+ * Positions grow monotonically, an entry is alive while its position is not behind the tail.
+ */
+public class OffHeapMailbox implements Mailbox {
+
+    private static final int ALIGNMENT = 8;
+    private static final int LENGTH_OFFSET = 0;
+    private static final int CLIENT_OFFSET = 4;
+    private static final int PREVIOUS_OFFSET = 8;
+    private static final int SEQUENCE_OFFSET = 16;
+    private static final int STORED_AT_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+    private static final int PADDING = Integer.MIN_VALUE;
+    private static final long NO_POSITION = -1;
+
+    private final int capacity;
+    private final long ttl;
+    private final int maxMessages;
+    private final ByteBuffer log;
+    private final ByteBuffer appendView;
+    private final ByteBuffer replayView;
+    private final IntLongHashMap lastPositions = new IntLongHashMap(1024, NO_POSITION);
+    private final long[] replayChain;
+    private long head;
+    private long tail;
+    private long entries;
+
+    private final Counter appends;
+    private final Counter evictions;
+    private final Counter dropped;
+    private final Counter replays;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter replayedMessages;
+
+    public OffHeapMailbox(int capacity, long ttl, int maxMessages, MetricsRegistry metrics) {
+        this.capacity = capacity - capacity % ALIGNMENT;
+        this.ttl = ttl;
+        this.maxMessages = maxMessages;
+        this.log = ByteBuffer.allocateDirect(this.capacity);
+        this.appendView = log.duplicate();
+        this.replayView = log.duplicate();
+        this.replayChain = new long[maxMessages];
+        this.appends = metrics.counter("mailbox_appends_total", "Messages stored for replay");
+        this.evictions = metrics.counter("mailbox_evictions_total", "Messages evicted by capacity or ttl");
+        this.dropped = metrics.counter("mailbox_dropped_total", "Messages too large to be stored");
+        this.replays = metrics.counter("mailbox_replays_total", "Replay requests of reconnecting clients");
+        this.hits = metrics.counter("mailbox_replay_hits_total", "Replays that covered the whole gap");
+        this.misses = metrics.counter("mailbox_replay_misses_total", "Replays that missed evicted messages");
+        this.replayedMessages = metrics.counter("mailbox_replayed_messages_total", "Messages replayed to clients");
+        metrics.gauge("mailbox_capacity_bytes", "Off-heap memory reserved for replay", () -> this.capacity);
+        metrics.gauge("mailbox_used_bytes", "Off-heap memory used by stored messages", this::usedBytes);
+        metrics.gauge("mailbox_entries", "Messages stored for replay", this::entries);
+        metrics.gauge("mailbox_clients", "Clients with stored messages", this::clients);
+        logger.info("Mailbox of {} bytes with ttl {} ms and {} messages per client", this.capacity, ttl, maxMessages);
+    }
+
+    @Override
+    public synchronized void append(int clientId, long sequence, ByteBuffer payload) {
+        int length = payload.remaining();
+        int entrySize = align(HEADER_SIZE + length);
+        if (entrySize > capacity) {
+            dropped.increment();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        expire(now);
+        int offset = offset(head);
+        if (offset + entrySize > capacity) {
+            int padding = capacity - offset;
+            reserve(padding);
+            log.putInt(offset + CLIENT_OFFSET, PADDING);
+            head += padding;
+            offset = 0;
+        }
+        reserve(entrySize);
+        log.putInt(offset + LENGTH_OFFSET, length);
+        log.putInt(offset + CLIENT_OFFSET, clientId);
+        log.putLong(offset + PREVIOUS_OFFSET, lastPositions.put(clientId, head));
+        log.putLong(offset + SEQUENCE_OFFSET, sequence);
+        log.putLong(offset + STORED_AT_OFFSET, now);
+        int payloadPosition = payload.position();
+        appendView.clear();
+        appendView.position(offset + HEADER_SIZE);
+        appendView.put(payload);
+        payload.position(payloadPosition);
+        head += entrySize;
+        entries++;
+        appends.increment();
+    }
+
+    @Override
+    public synchronized boolean replay(int clientId, long afterSequence, ObjLongConsumer<ByteBuffer> consumer) {
+        replays.increment();
+        expire(System.currentTimeMillis());
+        int count = 0;
+        boolean complete = false;
+        long position = lastPositions.get(clientId);
+        while (position != NO_POSITION && position >= tail && count < maxMessages) {
+            int offset = offset(position);
+            if (log.getLong(offset + SEQUENCE_OFFSET) <= afterSequence) {
+                complete = true;
+                break;
+            }
+            replayChain[count++] = position;
+            position = log.getLong(offset + PREVIOUS_OFFSET);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            int offset = offset(replayChain[i]);
+            int payloadOffset = offset + HEADER_SIZE;
+            replayView.clear();
+            replayView.limit(payloadOffset + log.getInt(offset + LENGTH_OFFSET)).position(payloadOffset);
+            consumer.accept(replayView, log.getLong(offset + SEQUENCE_OFFSET));
+        }
+        replayedMessages.add(count);
+        if (complete) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return complete;
+    }
+
+    private void expire(long now) {
+        if (ttl <= 0) {
+            return;
+        }
+        while (tail < head) {
+            int offset = offset(tail);
+            if (log.getInt(offset + CLIENT_OFFSET) != PADDING && log.getLong(offset + STORED_AT_OFFSET) > now - ttl) {
+                return;
+            }
+            evictTail();
+        }
+    }
+
+    private void reserve(int size) {
+        while (capacity - (head - tail) < size) {
+            evictTail();
+        }
+    }
+
+    private void evictTail() {
+        int offset = offset(tail);
+        int clientId = log.getInt(offset + CLIENT_OFFSET);
+        if (clientId == PADDING) {
+            tail += capacity - offset;
+            return;
+        }
+        if (lastPositions.get(clientId) == tail) {
+            lastPositions.remove(clientId);
+        }
+        tail += align(HEADER_SIZE + log.getInt(offset + LENGTH_OFFSET));
+        entries--;
+        evictions.increment();
+    }
+
+    private int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private synchronized long usedBytes() {
+        return head - tail;
+    }
+
+    private synchronized long entries() {
+        return entries;
+    }
+
+    private synchronized long clients() {
+        return lastPositions.size();
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapMailbox.class);
+}
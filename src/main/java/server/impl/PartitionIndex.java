@@ -0,0 +1,60 @@
+package server.impl;
+
+import common.collections.IntHashSet;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class PartitionIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final IntHashSet[] clients;
+    private final AtomicIntegerArray counts;
+
+    PartitionIndex(int partitionsCount) {
+        this.clients = new IntHashSet[partitionsCount];
+        this.counts = new AtomicIntegerArray(partitionsCount);
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            clients[partition] = new IntHashSet();
+        }
+    }
+
+    void add(int partition, int clientId) {
+        IntHashSet partitionClients = clients[partition];
+        synchronized (partitionClients) {
+            if (partitionClients.add(clientId)) {
+                counts.incrementAndGet(partition);
+            }
+        }
+    }
+
+    void remove(int partition, int clientId) {
+        IntHashSet partitionClients = clients[partition];
+        synchronized (partitionClients) {
+            if (partitionClients.remove(clientId)) {
+                counts.decrementAndGet(partition);
+            }
+        }
+    }
+
+    int[] removeAll(int partition) {
+        IntHashSet partitionClients = clients[partition];
+        synchronized (partitionClients) {
+            if (partitionClients.isEmpty()) {
+                return EMPTY;
+            }
+            int[] removed = partitionClients.toArray();
+            partitionClients.clear();
+            counts.set(partition, 0);
+            return removed;
+        }
+    }
+
+    int count(int partition) {
+        return counts.get(partition);
+    }
+
+    int partitionsCount() {
+        return clients.length;
+    }
+}
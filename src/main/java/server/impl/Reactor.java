@@ -0,0 +1,279 @@
+package server.impl;
+
+import com.google.common.collect.Lists;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import model.Node;
+import org.jctools.maps.NonBlockingHashMapLong;
+import org.jctools.queues.MpscUnboundedArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.ClientServerListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class Reactor implements Runnable {
+
+    private static final int OUTBOUND_CHUNK_SIZE = 1024;
+
+    private final int id;
+    private final Selector selector;
+    private final ClientServerListener listener;
+    private final NetworkSettings networkSettings;
+    private final BufferPool bufferPool;
+    private final NonBlockingHashMapLong<ClientServerImpl> clients;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<ByteBuffer> outboundFrames = new MpscUnboundedArrayQueue<>(OUTBOUND_CHUNK_SIZE);
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger connectionsCount = new AtomicInteger();
+    private final List<ClientServerImpl> pendingFlushes = Lists.newArrayList();
+    private volatile Thread thread;
+
+    Reactor(int id, ClientServerListener listener, NonBlockingHashMapLong<ClientServerImpl> clients,
+            NetworkSettings networkSettings) throws IOException {
+        this.id = id;
+        this.selector = Selector.open();
+        this.listener = listener;
+        this.clients = clients;
+        this.networkSettings = networkSettings;
+        this.bufferPool = new BufferPool(networkSettings);
+    }
+
+    int id() {
+        return id;
+    }
+
+    int connectionsCount() {
+        return connectionsCount.get();
+    }
+
+    void register(SocketChannel channel) {
+        connectionsCount.incrementAndGet();
+        execute(() -> registerChannel(channel));
+    }
+
+    void unregister(ClientServerImpl clientServer) {
+        execute(() -> unregisterClientServer(clientServer));
+    }
+
+    void dropClient(ClientServerImpl clientServer, int clientId) {
+        execute(() -> dropClientId(clientServer, clientId));
+    }
+
+    void moveClient(ClientServerImpl clientServer, int clientId, Node owner) {
+        execute(() -> moveClientId(clientServer, clientId, owner));
+    }
+
+    void requestWrite(ClientServerImpl clientServer) {
+        if (inReactorThread()) {
+            enableWriteInterest(clientServer);
+        } else {
+            execute(() -> enableWriteInterest(clientServer));
+        }
+    }
+
+    void execute(Runnable task) {
+        if (inReactorThread()) {
+            task.run();
+        } else {
+            tasks.add(task);
+            wakeup();
+        }
+    }
+
+    void dispatch(int clientId, long sequence, ByteBuffer payload) {
+        int frameSize = FrameCodec.dataFrameSize(payload.remaining());
+        if (frameSize > networkSettings.maxFrameSize()) {
+            logger.error("Dropping message of {} bytes for client {}", payload.remaining(), clientId);
+            return;
+        }
+        ByteBuffer frame = bufferPool.acquire(frameSize);
+        FrameCodec.encodeData(frame, clientId, sequence, payload);
+        frame.flip();
+        outboundFrames.offer(frame);
+    }
+
+    void flush() {
+        if (!outboundFrames.isEmpty()) {
+            wakeup();
+        }
+    }
+
+    private void wakeup() {
+        if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        logger.info("Reactor {} started", id);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                logger.error("Error while performing select", e);
+            }
+            wakeupPending.set(false);
+            runTasks();
+            writeOutboundFrames();
+            processSelectedKeys();
+        }
+        logger.info("Reactor {} stopped", id);
+    }
+
+    private boolean inReactorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Task failed in reactor {}", id, e);
+            }
+        }
+    }
+
+    private void writeOutboundFrames() {
+        ByteBuffer frame;
+        while ((frame = outboundFrames.poll()) != null) {
+            ClientServerImpl clientServer = clients.get(FrameCodec.field(frame));
+            if (clientServer == null || clientServer.reactor() != this || clientServer.isClosed()) {
+                bufferPool.release(frame);
+                continue;
+            }
+            try {
+                if (clientServer.queueFrame(frame) && !clientServer.isFlushPending()) {
+                    clientServer.setFlushPending(true);
+                    pendingFlushes.add(clientServer);
+                }
+            } catch (RuntimeException e) {
+                closeFailed(clientServer, e);
+            }
+        }
+        for (ClientServerImpl clientServer : pendingFlushes) {
+            clientServer.setFlushPending(false);
+            try {
+                if (!clientServer.isClosed() && clientServer.doWrite() > 0) {
+                    enableWriteInterest(clientServer);
+                }
+            } catch (RuntimeException e) {
+                closeFailed(clientServer, e);
+            }
+        }
+        pendingFlushes.clear();
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+        while (keyIterator.hasNext()) {
+            SelectionKey key = keyIterator.next();
+            keyIterator.remove();
+            ClientServerImpl clientServer = (ClientServerImpl) key.attachment();
+            try {
+                processKey(key, clientServer);
+            } catch (RuntimeException e) {
+                closeFailed(clientServer, e);
+            }
+        }
+    }
+
+    private void processKey(SelectionKey key, ClientServerImpl clientServer) {
+        if (key.isValid() && key.isReadable()) {
+            clientServer.doRead();
+        }
+        if (key.isValid() && key.isWritable()) {
+            int pendingBytes = clientServer.doWrite();
+            if (pendingBytes == 0 && clientServer.isCloseWhenFlushed()) {
+                unregisterClientServer(clientServer);
+            } else if (pendingBytes == 0 && key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void closeFailed(ClientServerImpl clientServer, RuntimeException e) {
+        logger.error("Unexpected error on connection {} in reactor {}. Closing it", clientServer.remoteAddress(), id, e);
+        try {
+            listener.onClientDisconnect(clientServer);
+        } catch (RuntimeException closeError) {
+            logger.error("Error while closing failed connection", closeError);
+            unregisterClientServer(clientServer);
+        }
+    }
+
+    private void registerChannel(SocketChannel channel) {
+        ClientServerImpl clientServer = new ClientServerImpl(channel, listener, this, bufferPool, networkSettings);
+        try {
+            SelectionKey selectionKey = channel.register(selector, SelectionKey.OP_READ, clientServer);
+            clientServer.setSelectionKey(selectionKey);
+        } catch (ClosedChannelException e) {
+            logger.warn("Channel was closed before registration in reactor {}", id);
+            clientServer.close();
+            connectionsCount.decrementAndGet();
+        }
+    }
+
+    private void unregisterClientServer(ClientServerImpl clientServer) {
+        if (clientServer.isClosed()) {
+            return;
+        }
+        SelectionKey selectionKey = clientServer.selectionKey();
+        if (selectionKey != null) {
+            selectionKey.cancel();
+        }
+        clientServer.close();
+        connectionsCount.decrementAndGet();
+    }
+
+    private void dropClientId(ClientServerImpl clientServer, int clientId) {
+        if (clientServer.isClosed() || !clientServer.removeClientId(clientId)) {
+            return;
+        }
+        if (clientServer.isMultiplexed()) {
+            clientServer.sendUnsubscribed(clientId);
+        } else {
+            unregisterClientServer(clientServer);
+        }
+    }
+
+    private void moveClientId(ClientServerImpl clientServer, int clientId, Node owner) {
+        if (clientServer.isClosed() || clients.get(clientId) == clientServer || !clientServer.removeClientId(clientId)) {
+            return;
+        }
+        clientServer.sendMoved(clientId, owner);
+        if (clientServer.isMultiplexed() || clientServer.isClosed()) {
+            return;
+        }
+        if (clientServer.pendingBytes() == 0) {
+            unregisterClientServer(clientServer);
+        } else {
+            clientServer.setCloseWhenFlushed(true);
+        }
+    }
+
+    private void enableWriteInterest(ClientServerImpl clientServer) {
+        SelectionKey selectionKey = clientServer.selectionKey();
+        if (selectionKey != null && selectionKey.isValid()) {
+            selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Reactor.class);
+}
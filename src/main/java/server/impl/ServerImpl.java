@@ -1,19 +1,31 @@
 package server.impl;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.SocketOptions;
+import hashing.RoutingSnapshot;
+import metrics.Counter;
+import metrics.MetricsRegistry;
 import model.Node;
 import model.impl.NodeImpl;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import server.ClientServer;
+import server.AdmissionSettings;
 import server.ClientServerListener;
+import server.Mailbox;
 import server.Server;
 import server.ServerContainer;
+import server.ServerSettings;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -21,33 +33,100 @@ import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
 public class ServerImpl implements Server, ClientServerListener {
 
+    private static class OutboundQueueStats {
+        private long totalBytes;
+        private long maxBytes;
+        private long congestedConnections;
+    }
+
+    private static final long ACCEPT_RETRY_PERIOD = 10;
+
     private Selector serverSelector;
-    private Selector clientSelector;
-    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private SelectionKey acceptKey;
+    private boolean acceptPaused;
+    private volatile boolean leaving;
+    private final ExecutorService acceptorExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("acceptor").build());
+    private final ExecutorService reactorExecutor;
+    private final Reactor[] reactors;
+    private int nextReactor;
     private ServerContainer container;
-    private BiMap<Integer, ClientServer> clientServerMap = HashBiMap.create();
-    private Map<ClientServer, SelectionKey> clientKeyMap = Maps.newHashMap();
+    private final NonBlockingHashMapLong<ClientServerImpl> clients = new NonBlockingHashMapLong<>();
+    private final PartitionIndex partitionIndex;
     private final String host;
     private final int port;
+    private final ServerSettings serverSettings;
+    private final NetworkSettings networkSettings;
+    private final AdmissionSettings admissionSettings;
+    private final RateLimiter acceptLimiter;
+    private final Mailbox mailbox;
+    private final Counter messagesOut;
+    private final Counter bytesOut;
+    private final Counter writeSuffers;
+    private final Counter movedClients;
+    private final Counter acceptedConnections;
+    private final Counter rejectedConnections;
+    private final Counter acceptThrottles;
+    private final Counter acceptErrors;
+    private final ClientDrainer drainer;
 
-    public ServerImpl(String host, int port, ServerContainer container) {
+    public ServerImpl(String host, int port, ServerContainer container, NetworkSettings networkSettings,
+                      ServerSettings serverSettings, AdmissionSettings admissionSettings, int partitionsCount,
+                      MetricsRegistry metrics) {
         this.host = host;
         this.port = port;
         this.container = container;
+        this.serverSettings = serverSettings;
+        this.networkSettings = networkSettings;
+        this.admissionSettings = admissionSettings;
+        this.acceptLimiter = admissionSettings.acceptRate() > 0 ? RateLimiter.create(admissionSettings.acceptRate()) : null;
+        this.partitionIndex = new PartitionIndex(partitionsCount);
+        this.messagesOut = metrics.counter("server_messages_out_total", "Data messages dispatched to clients");
+        this.bytesOut = metrics.counter("server_bytes_out_total", "Payload bytes dispatched to clients");
+        this.writeSuffers = metrics.counter("server_write_suffer_total", "Times an outbound queue crossed the high watermark");
+        this.acceptedConnections = metrics.counter("server_accepted_connections_total", "Accepted client connections");
+        this.rejectedConnections = metrics.counter("server_rejected_connections_total",
+                "Connections closed on accept because of the connection limit");
+        this.acceptThrottles = metrics.counter("server_accept_throttled_total",
+                "Accepted connections delayed by the accept rate limit");
+        this.acceptErrors = metrics.counter("server_accept_errors_total",
+                "Times accepting was paused by an accept error such as running out of file descriptors");
+        this.movedClients = metrics.counter("server_moved_clients_total", "Clients redirected to their new owner");
+        this.drainer = new ClientDrainer(serverSettings.drainWindow(), serverSettings.drainRate(), this::moveClient);
+        metrics.gauge("server_drain_pending_clients", "Clients waiting to be redirected", drainer::pendingCount);
+        metrics.gauge("server_connected_clients", "Connected client ids", clients::size);
+        metrics.gauge("server_connections", "Open client connections", this::connectionsCount);
+        metrics.gauge("server_partition_clients", "Connected client ids per partition", "partition",
+                this::partitionClients);
+        metrics.gauge("server_outbound_queue_bytes", "Bytes queued for all connections",
+                () -> outboundQueueStats().totalBytes);
+        metrics.gauge("server_outbound_queue_max_bytes", "Deepest outbound queue of a connection",
+                () -> outboundQueueStats().maxBytes);
+        metrics.gauge("server_congested_connections", "Connections with an outbound queue above the high watermark",
+                () -> outboundQueueStats().congestedConnections);
+        this.mailbox = serverSettings.mailboxCapacity() > 0
+                ? new OffHeapMailbox(serverSettings.mailboxCapacity(), serverSettings.mailboxTtl(),
+                        serverSettings.mailboxMaxMessages(), metrics)
+                : null;
+        this.reactors = new Reactor[serverSettings.reactorsCount()];
+        this.reactorExecutor = Executors.newFixedThreadPool(reactors.length,
+                new ThreadFactoryBuilder().setNameFormat("reactor-%d").build());
         try {
+            for (int i = 0; i < reactors.length; i++) {
+                reactors[i] = new Reactor(i, this, clients, networkSettings);
+                reactorExecutor.execute(reactors[i]);
+            }
+            logger.info("Started {} reactors with {} balancing", reactors.length, serverSettings.balancing());
             serverSelector = Selector.open();
-            clientSelector = Selector.open();
             ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
             serverSocketChannel.configureBlocking(false);
-            serverSocketChannel.register(serverSelector, SelectionKey.OP_ACCEPT);
-            serverSocketChannel.bind(new InetSocketAddress(port));
-            executor.execute(this::processConnections);
-            executor.execute(this::processIo);
+            SocketOptions.applyReceiveBuffer(serverSocketChannel, networkSettings);
+            acceptKey = serverSocketChannel.register(serverSelector, SelectionKey.OP_ACCEPT);
+            serverSocketChannel.bind(new InetSocketAddress(port), admissionSettings.backlog());
+            acceptorExecutor.execute(this::processConnections);
         } catch (IOException e) {
             logger.error("IO error while creating server socket", e);
         }
@@ -55,53 +134,110 @@ public class ServerImpl implements Server, ClientServerListener {
 
     @Override
     public Collection<Integer> connectedClients() {
-        return clientServerMap.keySet();
+        long[] clientIds = clients.keySetLong();
+        List<Integer> connectedClients = Lists.newArrayListWithCapacity(clientIds.length);
+        for (long clientId : clientIds) {
+            connectedClients.add((int) clientId);
+        }
+        return connectedClients;
     }
 
     @Override
-    public boolean containsClient(int clientId) {
-        return clientServerMap.containsKey(clientId);
+    public void sendMessage(int clientId, long sequence, ByteBuffer payload) {
+        if (mailbox != null) {
+            mailbox.append(clientId, sequence, payload);
+        }
+        ClientServerImpl clientServer = clients.get(clientId);
+        if (clientServer != null) {
+            messagesOut.increment();
+            bytesOut.add(payload.remaining());
+            clientServer.reactor().dispatch(clientId, sequence, payload);
+        }
     }
 
     @Override
-    public void sendMessage(int clientId, String message) {
-        if (clientServerMap.containsKey(clientId)) {
-            clientServerMap.get(clientId).sendMessage(message);
+    public void flush() {
+        for (Reactor reactor : reactors) {
+            reactor.flush();
         }
     }
 
     @Override
-    public void disconnectClient(int clientId) {
-        logger.info("disonnecting client {}", clientId);
-        ClientServer clientServer = clientServerMap.remove(clientId);
-        if (clientServer == null) {
-            return;
+    public void disconnectPartitions(Collection<Integer> partitions) {
+        for (Integer partition : partitions) {
+            int[] partitionClients = partitionIndex.removeAll(partition);
+            logger.info("Draining {} clients of partition {}", partitionClients.length, partition);
+            for (int clientId : partitionClients) {
+                ClientServerImpl clientServer = clients.remove(clientId);
+                if (clientServer != null) {
+                    drainer.add(clientServer, clientId);
+                }
+            }
         }
-        clientServer.close();
+    }
+
+    @Override
+    public boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        return drainer.awaitDrained(timeoutMillis);
+    }
 
-        SelectionKey selectionKey = clientKeyMap.remove(clientServer);
-        if (selectionKey != null) {
-            selectionKey.cancel();
+    @Override
+    public void leave() {
+        logger.info("Server is leaving. New clients are redirected");
+        leaving = true;
+        serverSelector.wakeup();
+    }
+
+    private long connectionsCount() {
+        long connectionsCount = 0;
+        for (Reactor reactor : reactors) {
+            connectionsCount += reactor.connectionsCount();
+        }
+        return connectionsCount;
+    }
+
+    private Map<String, Long> partitionClients() {
+        Map<String, Long> counts = Maps.newTreeMap();
+        for (int partition = 0; partition < partitionIndex.partitionsCount(); partition++) {
+            int count = partitionIndex.count(partition);
+            if (count > 0) {
+                counts.put(String.valueOf(partition), (long) count);
+            }
         }
-        clientServerMap.remove(clientId);
+        return counts;
+    }
+
+    private OutboundQueueStats outboundQueueStats() {
+        OutboundQueueStats stats = new OutboundQueueStats();
+        Set<ClientServerImpl> connections = Sets.newIdentityHashSet();
+        for (ClientServerImpl clientServer : clients.values()) {
+            long pendingBytes = clientServer.pendingBytes();
+            if (pendingBytes < 0 || !connections.add(clientServer)) {
+                continue;
+            }
+            stats.totalBytes += pendingBytes;
+            stats.maxBytes = Math.max(stats.maxBytes, pendingBytes);
+            if (pendingBytes >= networkSettings.highWatermark()) {
+                stats.congestedConnections++;
+            }
+        }
+        return stats;
     }
 
     private void processConnections() {
-        while (!Thread.currentThread().isInterrupted()) {
+        while (!leaving && !Thread.currentThread().isInterrupted()) {
             try {
-                serverSelector.select();
+                serverSelector.select(acceptPaused ? ACCEPT_RETRY_PERIOD : 0);
+                if (acceptPaused) {
+                    acceptPaused = false;
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                }
                 Set<SelectionKey> selectedKeys = serverSelector.selectedKeys();
                 Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
                 while (keyIterator.hasNext()) {
                     SelectionKey key = keyIterator.next();
-                    if (key.isAcceptable()) {
-                        ServerSocketChannel channel = (ServerSocketChannel) key.channel();
-                        SocketChannel clientChannel = channel.accept();
-                        clientChannel.configureBlocking(false);
-                        ClientServer clientServer = new ClientServerImpl(clientChannel, this);
-                        clientSelector.wakeup();
-                        SelectionKey selectionKey = clientChannel.register(clientSelector, SelectionKey.OP_READ, clientServer);
-                        clientKeyMap.put(clientServer, selectionKey);
+                    if (key.isValid() && key.isAcceptable()) {
+                        acceptConnections((ServerSocketChannel) key.channel());
                     }
                     keyIterator.remove();
                 }
@@ -109,58 +245,130 @@ public class ServerImpl implements Server, ClientServerListener {
                 logger.error("Error while performing select", e);
             }
         }
+        closeAcceptor();
+    }
+
+    private void closeAcceptor() {
+        logger.info("Stop accepting connections on port {}", port);
+        try {
+            acceptKey.channel().close();
+            serverSelector.close();
+        } catch (IOException e) {
+            logger.warn("Error while closing server socket", e);
+        }
     }
 
-    private void processIo() {
-        while (!Thread.currentThread().isInterrupted()) {
+    private void acceptConnections(ServerSocketChannel channel) throws IOException {
+        for (int i = 0; i < admissionSettings.acceptBatch(); i++) {
+            SocketChannel clientChannel;
             try {
-                int selectCount = clientSelector.select();
-                if (selectCount == 0) {
-                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
-                }
+                clientChannel = channel.accept();
             } catch (IOException e) {
-                logger.error("Error while performing select", e);
+                logger.warn("Failed to accept connection: {}", e.getMessage());
+                acceptErrors.increment();
+                pauseAccepting();
+                return;
             }
-            Set<SelectionKey> selectedKeys = clientSelector.selectedKeys();
-            Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
-            while (keyIterator.hasNext()) {
-                SelectionKey key = keyIterator.next();
-                ClientServer clientServer = (ClientServer) key.attachment();
-                if (key.isReadable()) {
-                    clientServer.doRead();
-                }
-                if (key.isWritable()) {
-                    int writeBytes = clientServer.doWrite();
-                    if (writeBytes != 0) {
-                        logger.info("Removing OP_WRITE flag from selection");
-                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
-                    }
+            if (clientChannel == null) {
+                return;
+            }
+            if (acceptLimiter != null && acceptLimiter.acquire() > 0) {
+                acceptThrottles.increment();
+            }
+            int maxConnections = admissionSettings.maxConnections();
+            if (maxConnections > 0 && connectionsCount() >= maxConnections) {
+                rejectedConnections.increment();
+                clientChannel.close();
+                continue;
+            }
+            try {
+                clientChannel.configureBlocking(false);
+                SocketOptions.apply(clientChannel, networkSettings);
+            } catch (IOException e) {
+                logger.warn("Failed to configure accepted connection", e);
+                clientChannel.close();
+                continue;
+            }
+            acceptedConnections.increment();
+            chooseReactor().register(clientChannel);
+        }
+    }
+
+    private void pauseAccepting() {
+        acceptPaused = true;
+        acceptKey.interestOps(0);
+    }
+
+    private Reactor chooseReactor() {
+        if (serverSettings.balancing() == ServerSettings.Balancing.LEAST_LOADED) {
+            Reactor leastLoaded = reactors[0];
+            for (Reactor reactor : reactors) {
+                if (reactor.connectionsCount() < leastLoaded.connectionsCount()) {
+                    leastLoaded = reactor;
                 }
-                keyIterator.remove();
             }
+            return leastLoaded;
         }
+        Reactor reactor = reactors[nextReactor];
+        nextReactor = (nextReactor + 1) % reactors.length;
+        return reactor;
     }
 
     @Override
     public void onWriteSuffer(ClientServerImpl clientServer) {
-        logger.info("Server writes suffer");
-        SelectionKey key = clientKeyMap.get(clientServer);
-        if (key != null) {
-            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
-        }
+        logger.info("Outbound queue of {} crossed the high watermark", clientServer.remoteAddress());
+        writeSuffers.increment();
     }
 
     @Override
-    public void onResolveServer(ClientServerImpl clientServer, int clientId) {
-        Node node = container.getNode(clientId);
+    public void onResolveServer(ClientServerImpl clientServer, int clientId, long knownRoutingVersion,
+                                long lastSequence) {
+        sendRoutingSnapshotIfNewer(clientServer, knownRoutingVersion);
+        Node node = owner(clientId);
+        boolean connected = false;
+        if (node != null && isCurrentNode(node)) {
+            connected = connectClient(clientServer, clientId);
+            if (!connected) {
+                node = owner(clientId);
+            }
+        }
         if (node == null) {
             clientServer.sendUnknownResolutionInfo(clientId);
-        } else {
-            if (this.port == node.port() && this.host.equals(node.host())) {
-                clientServerMap.put(clientId, clientServer);
-                logger.info("Client {} is now connected", clientId);
+            return;
+        }
+        if (connected) {
+            logger.info("Client {} is now connected", clientId);
+        }
+        clientServer.sendResolutionInfo(clientId, new NodeImpl(node.id(), node.host(), node.port()));
+        if (connected) {
+            replay(clientServer, clientId, lastSequence);
+        }
+    }
+
+    @Override
+    public void onSubscribe(ClientServerImpl clientServer, int clientId, long knownRoutingVersion,
+                            long lastSequence) {
+        sendRoutingSnapshotIfNewer(clientServer, knownRoutingVersion);
+        clientServer.setMultiplexed(true);
+        Node node = owner(clientId);
+        if (node != null && isCurrentNode(node)) {
+            if (connectClient(clientServer, clientId)) {
+                logger.info("Client {} is now subscribed", clientId);
+                clientServer.sendSubscribed(clientId);
+                replay(clientServer, clientId, lastSequence);
+                return;
             }
-            clientServer.sendResolutionInfo(clientId, new NodeImpl(node.id(), node.host(), node.port()));
+            node = owner(clientId);
+        }
+        logger.info("Client {} is not owned by this node. Owner is {}", clientId, node);
+        clientServer.sendMoved(clientId, node);
+    }
+
+    @Override
+    public void onUnsubscribe(ClientServerImpl clientServer, int clientId) {
+        logger.info("Client {} unsubscribed", clientId);
+        if (clientServer.removeClientId(clientId) && clients.remove(clientId, clientServer)) {
+            partitionIndex.remove(container.partition(clientId), clientId);
         }
     }
 
@@ -169,12 +377,77 @@ public class ServerImpl implements Server, ClientServerListener {
         if (clientServer == null) {
             return;
         }
-        Integer clientId = clientServerMap.inverse().get(clientServer);
-        if (clientId == null) {
+        int[] clientIds = clientServer.clientIds();
+        for (int clientId : clientIds) {
+            if (clients.remove(clientId, clientServer)) {
+                partitionIndex.remove(container.partition(clientId), clientId);
+            }
+        }
+        logger.info("Connection of {} clients refused", clientIds.length);
+        clientServer.reactor().unregister(clientServer);
+    }
+
+    private void moveClient(ClientServerImpl clientServer, int clientId) {
+        Node owner = owner(clientId);
+        movedClients.increment();
+        clientServer.reactor().moveClient(clientServer, clientId, owner);
+    }
+
+    private boolean connectClient(ClientServerImpl clientServer, int clientId) {
+        int partition = container.partition(clientId);
+        clientServer.addClientId(clientId);
+        ClientServerImpl previous = clients.put(clientId, clientServer);
+        if (previous != null && previous != clientServer) {
+            logger.info("Client {} moved to another connection", clientId);
+            previous.reactor().dropClient(previous, clientId);
+        }
+        partitionIndex.add(partition, clientId);
+        // the ring may have moved the partition away after the ownership check and before the index update,
+        // in which case its sweep has already run and would never see this client
+        Node owner = owner(clientId);
+        if (owner != null && isCurrentNode(owner)) {
+            return true;
+        }
+        logger.info("Partition {} of client {} was lost while connecting", partition, clientId);
+        clientServer.removeClientId(clientId);
+        if (clients.remove(clientId, clientServer)) {
+            partitionIndex.remove(partition, clientId);
+        }
+        return false;
+    }
+
+    private void replay(ClientServerImpl clientServer, int clientId, long lastSequence) {
+        if (mailbox == null || lastSequence == FrameCodec.NO_SEQUENCE) {
+            return;
+        }
+        boolean complete = mailbox.replay(clientId, lastSequence,
+                (payload, sequence) -> clientServer.sendMessage(clientId, sequence, payload));
+        if (!complete) {
+            logger.info("Client {} missed messages after sequence {}", clientId, lastSequence);
+        }
+    }
+
+    /**
+     * A leaving node may still own the client until the coordinator publishes the state without it. Such clients get
+     * no owner, so they retry elsewhere instead of coming back here.
+     */
+    private Node owner(int clientId) {
+        Node node = container.getNode(clientId);
+        return leaving && node != null && isCurrentNode(node) ? null : node;
+    }
+
+    private boolean isCurrentNode(Node node) {
+        return this.port == node.port() && this.host.equals(node.host());
+    }
+
+    private void sendRoutingSnapshotIfNewer(ClientServerImpl clientServer, long knownRoutingVersion) {
+        if (!serverSettings.routingSnapshot()) {
             return;
         }
-        logger.info("client {} refused connection", clientId);
-        disconnectClient(clientId);
+        RoutingSnapshot snapshot = container.routingSnapshot();
+        if (snapshot != null && snapshot.version() > knownRoutingVersion) {
+            clientServer.sendRoutingSnapshot(snapshot);
+        }
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ServerImpl.class);
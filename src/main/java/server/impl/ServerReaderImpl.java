@@ -1,35 +1,52 @@
 package server.impl;
 
 import common.network.AbstractReader;
+import common.network.BufferPool;
+import common.network.FrameCodec;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import hashing.RoutingSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import server.ServerReaderListener;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 public class ServerReaderImpl extends AbstractReader {
 
     private final ServerReaderListener listener;
 
-    public ServerReaderImpl(SocketChannel channel, ServerReaderListener listener) {
-        super(channel);
+    public ServerReaderImpl(SocketChannel channel, ServerReaderListener listener, BufferPool bufferPool,
+                            NetworkSettings settings) {
+        super(channel, bufferPool, settings);
         this.listener = listener;
     }
 
     @Override
-    protected void handleMessage(String type, String message) {
-        switch (type) {
-            case "resolve":
-                handleResolveMessage(message);
+    protected void handleFrame(byte opcode, int field, ByteBuffer payload) {
+        switch (opcode) {
+            case Opcode.RESOLVE:
+                logger.info("Received resolve request from client {}", field);
+                listener.onResolveServer(field, knownRoutingVersion(payload), lastSequence(payload));
+                break;
+            case Opcode.SUBSCRIBE:
+                listener.onSubscribe(field, knownRoutingVersion(payload), lastSequence(payload));
+                break;
+            case Opcode.UNSUBSCRIBE:
+                listener.onUnsubscribe(field);
                 break;
             default:
-                logger.error("Unknown message type {}", type);
+                logger.error("Unknown frame opcode {}", opcode);
         }
     }
 
-    private void handleResolveMessage(String clientId) {
-        logger.info("Received resolve request from client {}", clientId);
-        listener.onResolveServer(Integer.parseInt(clientId));
+    private long knownRoutingVersion(ByteBuffer payload) {
+        return payload.remaining() >= 8 ? payload.getLong(payload.position()) : RoutingSnapshot.NOT_REQUESTED;
+    }
+
+    private long lastSequence(ByteBuffer payload) {
+        return payload.remaining() >= 16 ? payload.getLong(payload.position() + 8) : FrameCodec.NO_SEQUENCE;
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ServerReaderImpl.class);
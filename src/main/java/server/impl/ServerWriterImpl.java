@@ -1,35 +1,74 @@
 package server.impl;
 
 import common.network.BasicWriter;
+import common.network.BufferPool;
+import common.network.NetworkSettings;
+import common.network.Opcode;
+import common.network.WriteListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import server.ServerWriter;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 
 public class ServerWriterImpl implements ServerWriter {
     private BasicWriter writer;
 
-    public ServerWriterImpl(SocketChannel channel) {
-        writer = new BasicWriter(channel);
+    public ServerWriterImpl(SocketChannel channel, BufferPool bufferPool, NetworkSettings settings,
+                            WriteListener listener) {
+        writer = new BasicWriter(channel, bufferPool, settings, listener);
     }
 
     @Override
-    public int sendMessage(String message) {
-        logger.info("Request to send {} message", message);
-        return writer.writeMessage("data", message);
+    public int sendMessage(int clientId, long sequence, ByteBuffer payload) {
+        return writer.writeDataFrame(clientId, sequence, payload);
+    }
+
+    @Override
+    public int queueFrame(ByteBuffer frame) {
+        return writer.queueEncodedFrame(frame);
     }
 
     @Override
     public int sendResolutionInfo(String host, int port) {
         logger.info("Request to send resolution info {}:{}", host, port);
-        return writer.writeMessage("resolve", host + ":" + port);
+        return writer.writeFrame(Opcode.RESOLUTION, port, host.getBytes(StandardCharsets.US_ASCII));
     }
 
     @Override
-    public int sendUnknownResolutionInfo() {
+    public int sendUnknownResolutionInfo(int clientId) {
         logger.info("Request to send unknown resolution info");
-        return writer.writeMessage("resolve", "unknown");
+        return writer.writeFrame(Opcode.UNKNOWN_RESOLUTION, clientId);
+    }
+
+    @Override
+    public int sendRoutingSnapshot(byte[] snapshot) {
+        logger.info("Request to send routing snapshot of {} bytes", snapshot.length);
+        return writer.writeFrame(Opcode.ROUTING, 0, snapshot);
+    }
+
+    @Override
+    public int sendSubscribed(int clientId) {
+        return writer.writeFrame(Opcode.SUBSCRIBED, clientId);
+    }
+
+    @Override
+    public int sendMoved(int clientId, String host, int port) {
+        logger.info("Request to send moved info of client {}: {}:{}", clientId, host, port);
+        if (host == null) {
+            return writer.writeFrame(Opcode.MOVED, clientId);
+        }
+        byte[] hostBytes = host.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(4 + hostBytes.length);
+        payload.putInt(port).put(hostBytes).flip();
+        return writer.writeFrame(Opcode.MOVED, clientId, payload);
+    }
+
+    @Override
+    public int sendUnsubscribed(int clientId) {
+        return writer.writeFrame(Opcode.UNSUBSCRIBE, clientId);
     }
 
     @Override
@@ -37,6 +76,11 @@ public class ServerWriterImpl implements ServerWriter {
         return writer.performWrite();
     }
 
+    @Override
+    public int pendingBytes() {
+        return writer.pendingBytes();
+    }
+
     @Override
     public void close() {
         logger.info("Request to close writer");
@@ -1,25 +1,43 @@
 package spring.config.client;
 
 import client.ClientApplication;
+import client.LoadSettings;
+import client.ReconnectSettings;
 import com.google.common.collect.Lists;
 import com.typesafe.config.Config;
-import com.typesafe.config.ConfigFactory;
+import common.network.NetworkSettings;
+import common.network.OverflowPolicy;
+import hashing.Partitioner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import spring.config.common.CommonSpringConfig;
 
 import java.net.InetSocketAddress;
 import java.util.List;
 
 @Configuration
+@Import(CommonSpringConfig.class)
 public class ClientSpringConfig {
 
     @Bean
-    public Config config() {
-        return ConfigFactory.load();
+    public NetworkSettings networkSettings(Config config) {
+        int bufferSize = config.getInt("network.buffer.size");
+        int maxFrameSize = config.getInt("network.max.frame.size");
+        int pooledBuffersPerSize = config.getInt("network.buffer.pool.size");
+        int highWatermark = config.getInt("network.writer.high.watermark");
+        int lowWatermark = config.getInt("network.writer.low.watermark");
+        OverflowPolicy overflowPolicy = OverflowPolicy.fromString(config.getString("network.writer.overflow.policy"));
+        boolean tcpNoDelay = config.getBoolean("network.socket.tcp.nodelay");
+        int sendBufferSize = config.getInt("network.socket.send.buffer");
+        int receiveBufferSize = config.getInt("network.socket.receive.buffer");
+        return new NetworkSettings(bufferSize, maxFrameSize, pooledBuffersPerSize, highWatermark, lowWatermark,
+                overflowPolicy, tcpNoDelay, sendBufferSize, receiveBufferSize);
     }
 
     @Bean
-    public ClientApplication periodicTestKafkaProducer(Config config) {
+    public ClientApplication periodicTestKafkaProducer(Config config, NetworkSettings networkSettings,
+                                                       Partitioner partitioner) {
         int clientsCount = config.getInt("accounts.count");
         int spawnDelay = config.getInt("client.spawn.delay");
         int decommissionDelay = config.getInt("client.decommission.delay");
@@ -30,6 +48,14 @@ public class ClientSpringConfig {
             servers.add(new InetSocketAddress(parts[0], Integer.parseInt(parts[1])));
         }
 
-        return new ClientApplication(clientsCount, spawnDelay, decommissionDelay, servers);
+        boolean routingCache = config.getBoolean("client.routing.cache");
+        boolean multiplexed = config.getBoolean("client.multiplexed");
+        long statsInterval = config.getLong("client.stats.interval");
+        LoadSettings loadSettings = new LoadSettings(config.getInt("client.selectors"),
+                config.getInt("client.load.clients"), config.getInt("client.load.connect.rate"));
+        ReconnectSettings reconnectSettings = new ReconnectSettings(config.getLong("client.reconnect.base.delay"),
+                config.getLong("client.reconnect.max.delay"), config.getInt("client.reconnect.max.attempts"));
+        return new ClientApplication(clientsCount, spawnDelay, decommissionDelay, servers, networkSettings,
+                routingCache, multiplexed, statsInterval, loadSettings, reconnectSettings, partitioner);
     }
 }
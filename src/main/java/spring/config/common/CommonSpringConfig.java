@@ -0,0 +1,22 @@
+package spring.config.common;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import hashing.Partitioner;
+import hashing.impl.Murmur3Partitioner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CommonSpringConfig {
+
+    @Bean
+    public Config config() {
+        return ConfigFactory.load();
+    }
+
+    @Bean
+    public Partitioner partitioner(Config config) {
+        return new Murmur3Partitioner(config.getInt("kafka.partitions"));
+    }
+}
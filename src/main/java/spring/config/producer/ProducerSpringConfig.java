@@ -1,10 +1,10 @@
 package spring.config.producer;
 
 import com.typesafe.config.Config;
-import com.typesafe.config.ConfigFactory;
 import coordination.Coordinator;
 import coordination.impl.ZkCoordinator;
 import hashing.HashRing;
+import hashing.Partitioner;
 import hashing.impl.HashRingImpl;
 import kafka.TestKafkaConsumer;
 import kafka.TestKafkaProducer;
@@ -12,29 +12,43 @@ import kafka.impl.TestKafkaConsumerImpl;
 import kafka.impl.TestKafkaProducerImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import producer.PeriodicTestKafkaProducer;
+import org.springframework.context.annotation.Import;
+import producer.AccountDistribution;
+import producer.AccountDistributionType;
+import producer.OpenLoopTestKafkaProducer;
+import producer.impl.AccountDistributionFactory;
 import server.ServerApplication;
+import spring.config.common.CommonSpringConfig;
 
 @Configuration
+@Import(CommonSpringConfig.class)
 public class ProducerSpringConfig {
 
     @Bean
-    public Config config() {
-        return ConfigFactory.load();
-    }
-
-    @Bean
-    public TestKafkaProducer testKafkaProducer(Config config) {
+    public TestKafkaProducer testKafkaProducer(Config config, Partitioner partitioner) {
         String bootstrap = config.getString("kafka.bootstrap");
         String topic = config.getString("kafka.topic");
-        int partitions = config.getInt("kafka.partitions");
-        return new TestKafkaProducerImpl(bootstrap, topic, partitions);
+        return new TestKafkaProducerImpl(bootstrap, topic, partitioner);
     }
 
     @Bean
-    public PeriodicTestKafkaProducer periodicTestKafkaProducer(Config config) {
-        int delay = config.getInt("kafka.producer.delay");
+    public AccountDistribution accountDistribution(Config config) {
+        AccountDistributionType type = AccountDistributionType.fromString(config.getString("kafka.producer.distribution"));
         int accountsCount = config.getInt("accounts.count");
-        return new PeriodicTestKafkaProducer(delay, accountsCount);
+        double zipfianTheta = config.getDouble("kafka.producer.zipfian.theta");
+        int hotAccountsCount = config.getInt("kafka.producer.hot.set.accounts");
+        double hotShare = config.getDouble("kafka.producer.hot.set.share");
+        long burstPeriod = config.getLong("kafka.producer.hot.set.burst.period");
+        long burstDuration = config.getLong("kafka.producer.hot.set.burst.duration");
+        return AccountDistributionFactory.create(type, accountsCount, zipfianTheta, hotAccountsCount, hotShare,
+                burstPeriod, burstDuration);
+    }
+
+    @Bean
+    public OpenLoopTestKafkaProducer openLoopTestKafkaProducer(Config config, AccountDistribution accountDistribution) {
+        int rate = config.getInt("kafka.producer.rate");
+        int threadsCount = config.getInt("kafka.producer.threads");
+        long reportInterval = config.getLong("kafka.producer.report.interval");
+        return new OpenLoopTestKafkaProducer(rate, threadsCount, reportInterval, accountDistribution);
     }
 }
@@ -1,51 +1,122 @@
 package spring.config.server;
 
 import com.typesafe.config.Config;
-import com.typesafe.config.ConfigFactory;
+import common.network.NetworkSettings;
+import common.network.OverflowPolicy;
 import coordination.Coordinator;
 import coordination.impl.ZkCoordinator;
 import hashing.HashRing;
-import hashing.impl.HashRingImpl;
+import hashing.HashRingAlgorithm;
+import hashing.Partitioner;
+import hashing.impl.HashRingFactory;
 import kafka.TestKafkaConsumer;
 import kafka.TestKafkaProducer;
 import kafka.impl.TestKafkaProducerImpl;
-import producer.PeriodicTestKafkaProducer;
 import kafka.impl.TestKafkaConsumerImpl;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import metrics.impl.JmxMetricsExporter;
+import metrics.impl.MetricsRegistryImpl;
+import metrics.impl.PrometheusMetricsExporter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import server.AdmissionSettings;
 import server.ServerApplication;
+import server.ServerSettings;
+import spring.config.common.CommonSpringConfig;
 
 @Configuration
+@Import(CommonSpringConfig.class)
 public class ServerSpringConfig {
 
     @Bean
-    public Config config() {
-        return ConfigFactory.load();
+    public Integer partitionsCount(Partitioner partitioner) {
+        return partitioner.partitionsCount();
     }
 
     @Bean
-    public Integer partitionsCount(Config config) {
-        return config.getInt("kafka.partitions");
+    public HashRing<Integer, Integer> hashRing(Config config, Partitioner partitioner) {
+        HashRingAlgorithm algorithm = HashRingAlgorithm.fromString(config.getString("hash.ring.algorithm"));
+        int splitPointsCount = config.getInt("hash.ring.split.points.count");
+        int rendezvousWeight = config.getInt("hash.ring.rendezvous.weight");
+        return HashRingFactory.create(algorithm, partitioner, splitPointsCount, rendezvousWeight);
     }
 
     @Bean
-    public HashRing<Integer, Integer> hashRing(Config config, Integer partitionsCount) {
-        int splitPointsCount = config.getInt("hash.ring.split.points.count");
-        return new HashRingImpl(partitionsCount, splitPointsCount);
+    public MetricsRegistry metricsRegistry() {
+        return new MetricsRegistryImpl();
+    }
+
+    @Bean
+    public MetricsExporter jmxMetricsExporter(Config config, MetricsRegistry metricsRegistry, Integer nodeId) {
+        String domain = config.getString("metrics.jmx.domain");
+        return new JmxMetricsExporter(metricsRegistry, domain + ":type=Server,node=" + nodeId);
     }
 
     @Bean
-    public Coordinator coordinator(Config config) {
+    public MetricsExporter prometheusMetricsExporter(Config config, MetricsRegistry metricsRegistry, String host,
+                                                     Integer port) {
+        int httpPort = port + config.getInt("metrics.http.port.offset");
+        return new PrometheusMetricsExporter(metricsRegistry, host, httpPort);
+    }
+
+    @Bean
+    public Coordinator coordinator(Config config, MetricsRegistry metricsRegistry) {
         String zkPath = config.getString("zk.path");
         String zkConnectionString = config.getString("zk.connection");
-        return new ZkCoordinator(zkConnectionString, zkPath);
+        long debounceWindow = config.getLong("zk.debounce");
+        return new ZkCoordinator(zkConnectionString, zkPath, debounceWindow, metricsRegistry);
     }
 
     @Bean
-    public TestKafkaConsumer testKafkaConsumer(Config config, Integer nodeId) {
+    public TestKafkaConsumer testKafkaConsumer(Config config, Integer nodeId, Integer partitionsCount,
+                                               MetricsRegistry metricsRegistry) {
         String bootstrap = config.getString("kafka.bootstrap");
         String topic = config.getString("kafka.topic");
-        return new TestKafkaConsumerImpl(bootstrap, topic, nodeId);
+        long handoffTimeout = config.getLong("kafka.handoff.timeout");
+        long lagInterval = config.getLong("kafka.lag.interval");
+        return new TestKafkaConsumerImpl(bootstrap, topic, nodeId, handoffTimeout, partitionsCount, lagInterval,
+                metricsRegistry);
+    }
+
+    @Bean
+    public NetworkSettings networkSettings(Config config) {
+        int bufferSize = config.getInt("network.buffer.size");
+        int maxFrameSize = config.getInt("network.max.frame.size");
+        int pooledBuffersPerSize = config.getInt("network.buffer.pool.size");
+        int highWatermark = config.getInt("network.writer.high.watermark");
+        int lowWatermark = config.getInt("network.writer.low.watermark");
+        OverflowPolicy overflowPolicy = OverflowPolicy.fromString(config.getString("network.writer.overflow.policy"));
+        boolean tcpNoDelay = config.getBoolean("network.socket.tcp.nodelay");
+        int sendBufferSize = config.getInt("network.socket.send.buffer");
+        int receiveBufferSize = config.getInt("network.socket.receive.buffer");
+        return new NetworkSettings(bufferSize, maxFrameSize, pooledBuffersPerSize, highWatermark, lowWatermark,
+                overflowPolicy, tcpNoDelay, sendBufferSize, receiveBufferSize);
+    }
+
+    @Bean
+    public ServerSettings serverSettings(Config config) {
+        int reactorsCount = config.getInt("server.reactors.count");
+        ServerSettings.Balancing balancing = ServerSettings.Balancing.fromString(config.getString("server.reactors.balancing"));
+        boolean routingSnapshot = config.getBoolean("server.routing.snapshot");
+        int mailboxCapacity = config.getInt("server.mailbox.capacity");
+        long mailboxTtl = config.getLong("server.mailbox.ttl");
+        int mailboxMaxMessages = config.getInt("server.mailbox.max.messages");
+        long drainWindow = config.getLong("server.drain.window");
+        int drainRate = config.getInt("server.drain.rate");
+        long leaveTimeout = config.getLong("server.drain.leave.timeout");
+        return new ServerSettings(reactorsCount, balancing, routingSnapshot, mailboxCapacity, mailboxTtl,
+                mailboxMaxMessages, drainWindow, drainRate, leaveTimeout);
+    }
+
+    @Bean
+    public AdmissionSettings admissionSettings(Config config) {
+        int maxConnections = config.getInt("server.accept.max.connections");
+        int acceptRate = config.getInt("server.accept.rate");
+        int backlog = config.getInt("server.accept.backlog");
+        int acceptBatch = config.getInt("server.accept.batch");
+        return new AdmissionSettings(maxConnections, acceptRate, backlog, acceptBatch);
     }
 
     @Bean
@@ -0,0 +1,80 @@
+package common.collections;
+
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class IntHashSetTest {
+
+    @Test
+    public void addsAndRemovesValues() {
+        IntHashSet set = new IntHashSet();
+
+        assertThat(set.add(5), is(true));
+        assertThat(set.add(5), is(false));
+        assertThat(set.add(-5), is(true));
+        assertThat(set.contains(5), is(true));
+        assertThat(set.size(), is(2));
+        assertThat(set.remove(5), is(true));
+        assertThat(set.remove(5), is(false));
+        assertThat(set.contains(5), is(false));
+        assertThat(set.contains(-5), is(true));
+        assertThat(set.size(), is(1));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        IntHashSet set = new IntHashSet(2);
+        for (int value = 0; value < 10000; value++) {
+            set.add(value);
+        }
+
+        assertThat(set.size(), is(10000));
+        for (int value = 0; value < 10000; value++) {
+            assertThat(set.contains(value), is(true));
+        }
+        assertThat(set.contains(10000), is(false));
+    }
+
+    @Test
+    public void matchesHashSetUnderRandomOperations() {
+        IntHashSet set = new IntHashSet(4);
+        Set<Integer> expected = Sets.newHashSet();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            int value = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value), is(expected.remove(value)));
+            } else {
+                assertThat(set.add(value), is(expected.add(value)));
+            }
+            assertThat(set.contains(value), is(expected.contains(value)));
+        }
+
+        assertThat(set.size(), is(expected.size()));
+        assertThat(Sets.newHashSet(Ints.asList(set.toArray())), is(expected));
+    }
+
+    @Test
+    public void clearsAllValues() {
+        IntHashSet set = new IntHashSet();
+        set.add(1);
+        set.add(2);
+        set.clear();
+
+        assertThat(set.isEmpty(), is(true));
+        assertThat(set.contains(1), is(false));
+        assertThat(set.toArray().length, is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservedValue() {
+        new IntHashSet().add(IntHashSet.MISSING_VALUE);
+    }
+}
@@ -0,0 +1,84 @@
+package common.collections;
+
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class IntLongHashMapTest {
+
+    private static final long MISSING = -1;
+
+    @Test
+    public void putsAndRemovesEntries() {
+        IntLongHashMap map = new IntLongHashMap(MISSING);
+
+        assertThat(map.put(7, 70), is(MISSING));
+        assertThat(map.put(7, 71), is(70L));
+        assertThat(map.put(-7, 0), is(MISSING));
+        assertThat(map.get(7), is(71L));
+        assertThat(map.size(), is(2));
+        assertThat(map.remove(7), is(71L));
+        assertThat(map.remove(7), is(MISSING));
+        assertThat(map.get(7), is(MISSING));
+        assertThat(map.get(-7), is(0L));
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        IntLongHashMap map = new IntLongHashMap(2, MISSING);
+        for (int key = 0; key < 10000; key++) {
+            map.put(key, key * 10L);
+        }
+
+        assertThat(map.size(), is(10000));
+        for (int key = 0; key < 10000; key++) {
+            assertThat(map.get(key), is(key * 10L));
+        }
+        assertThat(map.get(10000), is(MISSING));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        IntLongHashMap map = new IntLongHashMap(4, MISSING);
+        Map<Integer, Long> expected = Maps.newHashMap();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.getOrDefault(key, MISSING)));
+                expected.remove(key);
+            } else {
+                long value = random.nextLong() & Long.MAX_VALUE;
+                Long previous = expected.put(key, value);
+                assertThat(map.put(key, value), is(previous != null ? previous : MISSING));
+            }
+            assertThat(map.get(key), is(expected.getOrDefault(key, MISSING)));
+        }
+
+        assertThat(map.size(), is(expected.size()));
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+    }
+
+    @Test
+    public void clearsAllEntries() {
+        IntLongHashMap map = new IntLongHashMap(MISSING);
+        map.put(1, 10);
+        map.clear();
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.get(1), is(MISSING));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservedKey() {
+        new IntLongHashMap(MISSING).put(IntLongHashMap.MISSING_KEY, 1);
+    }
+}
@@ -0,0 +1,106 @@
+package common.network;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AbstractReaderTest {
+
+    private static final NetworkSettings SETTINGS = new NetworkSettings(64, 1024, 4, 1 << 16, 1 << 14,
+            OverflowPolicy.DROP_OLDEST, true, 0, 0);
+
+    private static class RecordingReader extends AbstractReader {
+        private final List<String> frames = new ArrayList<>();
+
+        RecordingReader(byte[] input) {
+            super(Channels.newChannel(new ByteArrayInputStream(input)), new BufferPool(SETTINGS), SETTINGS);
+        }
+
+        @Override
+        protected void handleFrame(byte opcode, int field, ByteBuffer payload) {
+            frames.add(opcode + "/" + field + "/" + payload.remaining());
+            if (opcode == Opcode.MOVED) {
+                close();
+            }
+        }
+    }
+
+    @Test
+    public void decodesPipelinedFrames() {
+        ByteBuffer input = ByteBuffer.allocate(512);
+        FrameCodec.encode(input, Opcode.RESOLVE, 1);
+        FrameCodec.encode(input, Opcode.DATA, 2, new byte[300]);
+        FrameCodec.encode(input, Opcode.SUBSCRIBE, 3, new byte[8]);
+
+        RecordingReader reader = new RecordingReader(bytes(input));
+
+        assertThat(reader.performRead() > 0, is(true));
+        assertThat(reader.frames, contains(Opcode.RESOLVE + "/1/0", Opcode.DATA + "/2/300", Opcode.SUBSCRIBE + "/3/8"));
+    }
+
+    @Test
+    public void stopsDecodingWhenHandlerClosesReader() {
+        ByteBuffer input = ByteBuffer.allocate(128);
+        FrameCodec.encode(input, Opcode.RESOLVE, 1);
+        FrameCodec.encode(input, Opcode.MOVED, 2, new byte[8]);
+        FrameCodec.encode(input, Opcode.SUBSCRIBE, 3);
+
+        RecordingReader reader = new RecordingReader(bytes(input));
+
+        assertThat(reader.performRead() > 0, is(true));
+        assertThat(reader.frames, contains(Opcode.RESOLVE + "/1/0", Opcode.MOVED + "/2/8"));
+        assertThat(reader.performRead(), is(-1));
+    }
+
+    @Test
+    public void rejectsLengthNearIntegerMax() {
+        RecordingReader reader = new RecordingReader(header(Integer.MAX_VALUE - 1));
+
+        assertThat(reader.performRead(), is(-1));
+        assertThat(reader.frames, is(empty()));
+    }
+
+    @Test
+    public void rejectsNegativeLength() {
+        RecordingReader reader = new RecordingReader(header(-5));
+
+        assertThat(reader.performRead(), is(-1));
+        assertThat(reader.frames, is(empty()));
+    }
+
+    @Test
+    public void rejectsFrameAboveMaxFrameSize() {
+        RecordingReader reader = new RecordingReader(header(SETTINGS.maxFrameSize() - FrameCodec.LENGTH_SIZE + 1));
+
+        assertThat(reader.performRead(), is(-1));
+    }
+
+    @Test
+    public void rejectsLengthShorterThanHeader() {
+        RecordingReader reader = new RecordingReader(header(FrameCodec.HEADER_SIZE - 1));
+
+        assertThat(reader.performRead(), is(-1));
+    }
+
+    private static byte[] header(int frameLength) {
+        ByteBuffer input = ByteBuffer.allocate(FrameCodec.frameSize(0));
+        input.putInt(frameLength).put(FrameCodec.PROTOCOL_VERSION).put(Opcode.DATA).putInt(0);
+        return bytes(input);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,127 @@
+package common.network;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BasicWriterTest {
+
+    private static final int FRAME_SIZE = FrameCodec.frameSize(100);
+    private static final NetworkSettings SETTINGS = new NetworkSettings(64, 1024, 4, 256, 64,
+            OverflowPolicy.DROP_OLDEST, true, 0, 0);
+
+    private static class ThrottledChannel implements GatheringByteChannel {
+        private long budget;
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length && budget > 0; i++) {
+                int count = (int) Math.min(budget, srcs[i].remaining());
+                srcs[i].position(srcs[i].position() + count);
+                budget -= count;
+                written += count;
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CountingListener implements WriteListener {
+        private int pending;
+        private int suffers;
+
+        @Override
+        public void onWritePending() {
+            pending++;
+        }
+
+        @Override
+        public void onWriteSuffer() {
+            suffers++;
+        }
+    }
+
+    private final ThrottledChannel channel = new ThrottledChannel();
+    private final CountingListener listener = new CountingListener();
+    private final BasicWriter writer = new BasicWriter(channel, new BufferPool(SETTINGS), SETTINGS, listener);
+
+    @Test
+    public void leftoverBelowHighWatermarkOnlyRequestsFlush() {
+        channel.budget = 50;
+
+        assertThat(writeFrame(), is(FRAME_SIZE - 50));
+        assertThat(listener.pending, is(1));
+        assertThat(listener.suffers, is(0));
+    }
+
+    @Test
+    public void suffersOncePerHighWatermarkCrossing() {
+        writeFrame();
+        writeFrame();
+        assertThat(listener.suffers, is(0));
+        writeFrame();
+        assertThat(listener.suffers, is(1));
+        writeFrame();
+        assertThat(listener.suffers, is(1));
+        assertThat(listener.pending, is(1));
+
+        channel.budget = Long.MAX_VALUE;
+        assertThat(writer.performWrite(), is(0));
+        channel.budget = 0;
+        writeFrame();
+        writeFrame();
+        writeFrame();
+
+        assertThat(listener.suffers, is(2));
+        assertThat(listener.pending, is(2));
+    }
+
+    @Test
+    public void staysUnwritableUntilLowWatermark() {
+        writeFrame();
+        writeFrame();
+        writeFrame();
+
+        channel.budget = 3 * FRAME_SIZE - 100;
+        writer.performWrite();
+        channel.budget = 0;
+        writeFrame();
+        writeFrame();
+        assertThat(listener.suffers, is(1));
+
+        channel.budget = Long.MAX_VALUE;
+        writer.performWrite();
+        channel.budget = 0;
+        writeFrame();
+        writeFrame();
+        writeFrame();
+        assertThat(listener.suffers, is(2));
+    }
+
+    private int writeFrame() {
+        return writer.writeFrame(Opcode.DATA, 1, new byte[100]);
+    }
+}
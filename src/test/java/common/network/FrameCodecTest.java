@@ -0,0 +1,52 @@
+package common.network;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FrameCodecTest {
+
+    @Test
+    public void encodesHeader() {
+        ByteBuffer frame = ByteBuffer.allocate(FrameCodec.frameSize(3));
+        FrameCodec.encode(frame, Opcode.SUBSCRIBE, -17, new byte[]{1, 2, 3});
+        frame.flip();
+
+        assertThat(frame.remaining(), is(FrameCodec.frameSize(3)));
+        assertThat(FrameCodec.frameLength(frame), is(FrameCodec.HEADER_SIZE + 3));
+        assertThat(FrameCodec.version(frame), is(FrameCodec.PROTOCOL_VERSION));
+        assertThat(FrameCodec.opcode(frame), is(Opcode.SUBSCRIBE));
+        assertThat(FrameCodec.field(frame), is(-17));
+    }
+
+    @Test
+    public void encodesDataFrameWithSequence() {
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{9, 8, 7, 6, 5});
+        payload.position(1);
+        ByteBuffer frame = ByteBuffer.allocate(FrameCodec.dataFrameSize(payload.remaining()));
+        FrameCodec.encodeData(frame, 42, 1234567890123L, payload);
+        frame.flip();
+
+        assertThat(payload.position(), is(1));
+        assertThat(frame.remaining(), is(FrameCodec.dataFrameSize(4)));
+        assertThat(FrameCodec.opcode(frame), is(Opcode.DATA));
+        assertThat(FrameCodec.field(frame), is(42));
+        frame.position(FrameCodec.LENGTH_SIZE + FrameCodec.HEADER_SIZE);
+        assertThat(frame.getLong(), is(1234567890123L));
+        assertThat(frame.get(), is((byte) 8));
+        assertThat(frame.remaining(), is(3));
+    }
+
+    @Test
+    public void keepsPayloadBufferPosition() {
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{1, 2});
+        ByteBuffer frame = ByteBuffer.allocate(FrameCodec.frameSize(2));
+        FrameCodec.encode(frame, Opcode.DATA, 1, payload);
+
+        assertThat(payload.remaining(), is(2));
+        assertThat(frame.hasRemaining(), is(false));
+    }
+}
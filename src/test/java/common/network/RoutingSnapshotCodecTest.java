@@ -0,0 +1,83 @@
+package common.network;
+
+import com.google.common.base.Strings;
+import hashing.Partitioner;
+import hashing.RoutingSnapshot;
+import hashing.impl.Murmur3Partitioner;
+import hashing.impl.RoutingTableImpl;
+import model.Node;
+import model.impl.NodeImpl;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RoutingSnapshotCodecTest {
+
+    private static final Partitioner PARTITIONER = new Murmur3Partitioner(4);
+    private static final String LONG_HOST = Strings.repeat("h", 40000);
+
+    @Test
+    public void decodesEncodedSnapshot() {
+        RoutingSnapshot decoded = RoutingSnapshotCodec.decode(ByteBuffer.wrap(encode("localhost")), PARTITIONER);
+
+        assertThat(decoded.version(), is(7L));
+        assertThat(decoded.routingTable().owner(2), is(1));
+        assertThat(decoded.nodes().get(1).host(), is("localhost"));
+        assertThat(decoded.nodes().get(1).port(), is(13000));
+    }
+
+    @Test
+    public void decodesHostLongerThanSignedShort() {
+        RoutingSnapshot decoded = RoutingSnapshotCodec.decode(ByteBuffer.wrap(encode(LONG_HOST)), PARTITIONER);
+
+        assertThat(decoded.nodes().get(1).host(), is(LONG_HOST));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedSnapshot() {
+        byte[] encoded = encode("localhost");
+        RoutingSnapshotCodec.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 1), PARTITIONER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPartitionsCountBeyondPayload() {
+        ByteBuffer buffer = ByteBuffer.wrap(encode("localhost"));
+        buffer.putInt(8, Integer.MAX_VALUE);
+        RoutingSnapshotCodec.decode(buffer, PARTITIONER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativePartitionsCount() {
+        ByteBuffer buffer = ByteBuffer.wrap(encode("localhost"));
+        buffer.putInt(8, -1);
+        RoutingSnapshotCodec.decode(buffer, PARTITIONER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNodesCountBeyondPayload() {
+        ByteBuffer buffer = ByteBuffer.wrap(encode("localhost"));
+        buffer.putInt(8 + 4 + 4 * 4, 1 << 20);
+        RoutingSnapshotCodec.decode(buffer, PARTITIONER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPartitionsCountOtherThanPartitioner() {
+        RoutingSnapshotCodec.decode(ByteBuffer.wrap(encode("localhost")), new Murmur3Partitioner(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPayload() {
+        RoutingSnapshotCodec.decode(ByteBuffer.allocate(0), PARTITIONER);
+    }
+
+    private static byte[] encode(String host) {
+        Map<Integer, Node> nodes = new HashMap<>();
+        nodes.put(1, new NodeImpl(1, host, 13000));
+        return RoutingSnapshotCodec.snapshot(7, new RoutingTableImpl(new int[]{0, 0, 1, 1}, PARTITIONER), nodes).encoded();
+    }
+}
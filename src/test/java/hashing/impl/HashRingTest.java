@@ -0,0 +1,132 @@
+package hashing.impl;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import hashing.HashRing;
+import hashing.HashRingAlgorithm;
+import hashing.RoutingTable;
+import model.Range;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isOneOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Parameterized.class)
+public class HashRingTest {
+
+    private static final int PARTITIONS_COUNT = 120;
+    private static final int SPLIT_POINTS_COUNT = 10;
+    private static final int RENDEZVOUS_WEIGHT = 100;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> algorithms() {
+        return Arrays.asList(new Object[][]{
+                {HashRingAlgorithm.SPLIT_POINTS},
+                {HashRingAlgorithm.RENDEZVOUS},
+                {HashRingAlgorithm.JUMP},
+                {HashRingAlgorithm.MAGLEV}
+        });
+    }
+
+    private final HashRingAlgorithm algorithm;
+
+    public HashRingTest(HashRingAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    @Test
+    public void hashesToNobodyWithoutNodes() {
+        HashRing<Integer, Integer> ring = createRing();
+        ring.update(ArrayListMultimap.create());
+
+        assertThat(ring.hash(42), is(nullValue()));
+        assertThat(ring.routingTable().owner(0), is(RoutingTable.NO_OWNER));
+    }
+
+    @Test
+    public void assignsEveryPartitionToAJoinedNode() {
+        HashRing<Integer, Integer> ring = createRing();
+        ring.update(state(ring, 1, 2, 3));
+
+        RoutingTable table = ring.routingTable();
+        for (int partition = 0; partition < PARTITIONS_COUNT; partition++) {
+            assertThat(table.owner(partition), isOneOf(1, 2, 3));
+        }
+        for (int value : new int[]{0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            assertThat(ring.hash(value), is(table.owner(table.partition(value))));
+        }
+    }
+
+    @Test
+    public void partitionRangesCoverTheTableExactlyOnce() {
+        HashRing<Integer, Integer> ring = createRing();
+        ring.update(state(ring, 1, 2, 3));
+
+        int[] covered = new int[PARTITIONS_COUNT];
+        for (int nodeId = 1; nodeId <= 3; nodeId++) {
+            for (Range range : ring.getPartitions(nodeId)) {
+                for (int partition = range.from(); partition < range.to(); partition++) {
+                    assertThat(ring.routingTable().owner(partition), is(nodeId));
+                    covered[partition]++;
+                }
+            }
+        }
+        for (int partition = 0; partition < PARTITIONS_COUNT; partition++) {
+            assertThat("partition " + partition, covered[partition], is(1));
+        }
+    }
+
+    @Test
+    public void buildsTheSameTableFromTheSameState() {
+        HashRing<Integer, Integer> ring = createRing();
+        Multimap<Integer, Integer> state = state(ring, 1, 2, 3);
+        ring.update(state);
+        HashRing<Integer, Integer> other = createRing();
+        other.update(state);
+
+        assertThat(other.routingTable().toString(), is(ring.routingTable().toString()));
+    }
+
+    @Test
+    public void leavingNodeOnlyReleasesItsOwnPartitions() {
+        if (algorithm == HashRingAlgorithm.MAGLEV) {
+            return;
+        }
+        HashRing<Integer, Integer> ring = createRing();
+        Multimap<Integer, Integer> state = state(ring, 1, 2, 3);
+        ring.update(state);
+        RoutingTable before = ring.routingTable();
+        state.removeAll(3);
+        ring.update(state);
+        RoutingTable after = ring.routingTable();
+
+        for (int partition = 0; partition < PARTITIONS_COUNT; partition++) {
+            if (before.owner(partition) == 3) {
+                assertThat(after.owner(partition), is(not(3)));
+            } else {
+                assertThat("partition " + partition, after.owner(partition), is(before.owner(partition)));
+            }
+        }
+    }
+
+    private HashRing<Integer, Integer> createRing() {
+        return HashRingFactory.create(algorithm, new Murmur3Partitioner(PARTITIONS_COUNT), SPLIT_POINTS_COUNT,
+                RENDEZVOUS_WEIGHT);
+    }
+
+    private static Multimap<Integer, Integer> state(HashRing<Integer, Integer> ring, int... nodeIds) {
+        Multimap<Integer, Integer> state = ArrayListMultimap.create();
+        for (int nodeId : nodeIds) {
+            state.putAll(nodeId, ring.generateSplitPoints(nodeId));
+        }
+        return state;
+    }
+}
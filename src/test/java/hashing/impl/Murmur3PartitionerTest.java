@@ -0,0 +1,103 @@
+package hashing.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.typesafe.config.ConfigFactory;
+import common.network.RoutingSnapshotCodec;
+import hashing.HashRing;
+import hashing.HashRingAlgorithm;
+import hashing.Partitioner;
+import hashing.RoutingTable;
+import model.impl.NodeImpl;
+import org.junit.Test;
+import spring.config.common.CommonSpringConfig;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class Murmur3PartitionerTest {
+
+    private static final int PARTITIONS_COUNT = 30;
+    private static final int KEYS_COUNT = 100000;
+    private static final int[] BOUNDARY_KEYS = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1, PARTITIONS_COUNT, -PARTITIONS_COUNT};
+
+    private final Partitioner partitioner = new Murmur3Partitioner(PARTITIONS_COUNT);
+
+    @Test
+    public void keepsBoundaryKeysInRange() {
+        for (int key : BOUNDARY_KEYS) {
+            assertInRange(partitioner, key);
+        }
+    }
+
+    @Test
+    public void keepsNegativeKeysInRange() {
+        for (int key = -1; key > -KEYS_COUNT; key--) {
+            assertInRange(partitioner, key);
+        }
+    }
+
+    @Test
+    public void keepsRandomKeysInRangeForAnyPartitionsCount() {
+        Random random = new Random(42);
+        for (int partitionsCount : new int[]{1, 2, 7, 30, 1024, Integer.MAX_VALUE}) {
+            Partitioner anyPartitioner = new Murmur3Partitioner(partitionsCount);
+            for (int i = 0; i < 1000; i++) {
+                assertInRange(anyPartitioner, random.nextInt());
+            }
+            for (int key : BOUNDARY_KEYS) {
+                assertInRange(anyPartitioner, key);
+            }
+        }
+    }
+
+    @Test
+    public void routingTablesAgreeWithSharedPartitioner() {
+        Partitioner sharedPartitioner = new CommonSpringConfig().partitioner(ConfigFactory.load());
+        HashRing<Integer, Integer> ring = HashRingFactory.create(HashRingAlgorithm.SPLIT_POINTS, sharedPartitioner, 3, 1);
+        ring.update(ImmutableMultimap.of(0, 1));
+        RoutingTable serverTable = ring.routingTable();
+        RoutingTable clientTable = RoutingSnapshotCodec.decode(ByteBuffer.wrap(RoutingSnapshotCodec.snapshot(0,
+                serverTable, ImmutableMap.of(0, new NodeImpl(0, "localhost", 0))).encoded()), sharedPartitioner)
+                .routingTable();
+
+        Random random = new Random(42);
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            int key = i % 2 == 0 ? random.nextInt() : i - KEYS_COUNT / 2;
+            assertThat("key " + key, serverTable.partition(key), is(sharedPartitioner.partition(key)));
+            assertThat("key " + key, clientTable.partition(key), is(sharedPartitioner.partition(key)));
+        }
+        for (int key : BOUNDARY_KEYS) {
+            assertThat("key " + key, serverTable.partition(key), is(sharedPartitioner.partition(key)));
+        }
+    }
+
+    @Test
+    public void spreadsStridedKeys() {
+        int[] loads = new int[PARTITIONS_COUNT];
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            loads[partitioner.partition(i * PARTITIONS_COUNT)]++;
+        }
+        double mean = (double) KEYS_COUNT / PARTITIONS_COUNT;
+        for (int load : loads) {
+            assertThat((double) load, lessThan(mean * 1.2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositivePartitionsCount() {
+        new Murmur3Partitioner(0);
+    }
+
+    private static void assertInRange(Partitioner partitioner, int key) {
+        int partition = partitioner.partition(key);
+        assertThat("key " + key, partition, greaterThanOrEqualTo(0));
+        assertThat("key " + key, partition, lessThan(partitioner.partitionsCount()));
+    }
+}
@@ -0,0 +1,72 @@
+package server.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class ClientDrainerTest {
+
+    @Test
+    public void spreadsMovesOverTheWindow() throws InterruptedException {
+        AtomicInteger moved = new AtomicInteger();
+        ClientDrainer drainer = new ClientDrainer(1000, 0, (clientServer, clientId) -> moved.incrementAndGet());
+        addClients(drainer, 100);
+
+        Thread.sleep(200);
+        assertThat(moved.get(), greaterThan(0));
+        assertThat(moved.get(), lessThan(60));
+
+        assertThat(drainer.awaitDrained(3000), is(true));
+        assertThat(moved.get(), is(100));
+        assertThat(drainer.pendingCount(), is(0));
+    }
+
+    @Test
+    public void neverExceedsTheRate() throws InterruptedException {
+        AtomicInteger moved = new AtomicInteger();
+        ClientDrainer drainer = new ClientDrainer(10, 100, (clientServer, clientId) -> moved.incrementAndGet());
+        addClients(drainer, 60);
+
+        Thread.sleep(200);
+        assertThat(moved.get(), lessThan(35));
+
+        assertThat(drainer.awaitDrained(3000), is(true));
+        assertThat(moved.get(), is(60));
+    }
+
+    @Test
+    public void keepsDrainingWhenAMoveFails() throws InterruptedException {
+        AtomicInteger moved = new AtomicInteger();
+        ClientDrainer drainer = new ClientDrainer(100, 0, (clientServer, clientId) -> {
+            if (clientId == 0) {
+                throw new IllegalStateException("move failed");
+            }
+            moved.incrementAndGet();
+        });
+        addClients(drainer, 10);
+
+        assertThat(drainer.awaitDrained(3000), is(true));
+        assertThat(moved.get(), is(9));
+    }
+
+    @Test
+    public void reportsTimeoutWhilePending() throws InterruptedException {
+        ClientDrainer drainer = new ClientDrainer(10000, 1, (clientServer, clientId) -> {
+        });
+        addClients(drainer, 100);
+
+        assertThat(drainer.awaitDrained(50), is(false));
+        assertThat(drainer.pendingCount(), greaterThan(90));
+    }
+
+    private static void addClients(ClientDrainer drainer, int count) {
+        for (int clientId = 0; clientId < count; clientId++) {
+            drainer.add(null, clientId);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package server.impl;
+
+import metrics.impl.MetricsRegistryImpl;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapMailboxTest {
+
+    private static final int ENTRY_SIZE = 32 + 8;
+
+    private static class Replay {
+        private final List<Long> sequences = new ArrayList<>();
+        private final List<Long> payloads = new ArrayList<>();
+        private boolean complete;
+    }
+
+    @Test
+    public void replaysOnlyMessagesAfterSequence() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(1 << 16, 0, 100, new MetricsRegistryImpl());
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            append(mailbox, 1, sequence);
+            append(mailbox, 2, sequence + 100);
+        }
+
+        Replay replay = replay(mailbox, 1, 2);
+
+        assertThat(replay.complete, is(true));
+        assertThat(replay.sequences, contains(3L, 4L, 5L));
+        assertThat(replay.payloads, contains(300L, 400L, 500L));
+    }
+
+    @Test
+    public void reportsCompleteReplayWhenNothingIsMissing() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(1 << 16, 0, 100, new MetricsRegistryImpl());
+        append(mailbox, 1, 1);
+
+        Replay replay = replay(mailbox, 1, 1);
+
+        assertThat(replay.complete, is(true));
+        assertThat(replay.sequences, is(empty()));
+    }
+
+    @Test
+    public void reportsMissForUnknownClient() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(1 << 16, 0, 100, new MetricsRegistryImpl());
+
+        Replay replay = replay(mailbox, 1, 0);
+
+        assertThat(replay.complete, is(false));
+        assertThat(replay.sequences, is(empty()));
+    }
+
+    @Test
+    public void keepsPayloadsIntactAcrossWrapAround() {
+        int capacity = ENTRY_SIZE * 5 + 16;
+        OffHeapMailbox mailbox = new OffHeapMailbox(capacity, 0, 100, new MetricsRegistryImpl());
+        for (long sequence = 1; sequence <= 23; sequence++) {
+            append(mailbox, 1, sequence);
+            Replay replay = replay(mailbox, 1, sequence - 3);
+            assertThat("after " + sequence, replay.sequences.get(replay.sequences.size() - 1), is(sequence));
+            for (int i = 0; i < replay.sequences.size(); i++) {
+                assertThat(replay.payloads.get(i), is(replay.sequences.get(i) * 100));
+            }
+        }
+    }
+
+    @Test
+    public void evictsOldestMessagesWhenFull() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(ENTRY_SIZE * 4, 0, 100, new MetricsRegistryImpl());
+        for (long sequence = 1; sequence <= 6; sequence++) {
+            append(mailbox, 1, sequence);
+        }
+        append(mailbox, 2, 1);
+
+        Replay replay = replay(mailbox, 1, 0);
+
+        assertThat(replay.complete, is(false));
+        assertThat(replay.sequences, contains(4L, 5L, 6L));
+        assertThat(replay(mailbox, 2, 0).sequences, contains(1L));
+    }
+
+    @Test
+    public void evictsExpiredMessages() throws InterruptedException {
+        OffHeapMailbox mailbox = new OffHeapMailbox(1 << 16, 50, 100, new MetricsRegistryImpl());
+        append(mailbox, 1, 1);
+        Thread.sleep(100);
+        append(mailbox, 1, 2);
+
+        Replay replay = replay(mailbox, 1, 0);
+
+        assertThat(replay.complete, is(false));
+        assertThat(replay.sequences, contains(2L));
+    }
+
+    @Test
+    public void limitsReplayToMaxMessages() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(1 << 16, 0, 3, new MetricsRegistryImpl());
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            append(mailbox, 1, sequence);
+        }
+
+        Replay replay = replay(mailbox, 1, 0);
+
+        assertThat(replay.complete, is(false));
+        assertThat(replay.sequences, contains(3L, 4L, 5L));
+    }
+
+    @Test
+    public void dropsMessagesLargerThanCapacity() {
+        OffHeapMailbox mailbox = new OffHeapMailbox(64, 0, 100, new MetricsRegistryImpl());
+        mailbox.append(1, 1, ByteBuffer.allocate(64));
+
+        assertThat(replay(mailbox, 1, 0).sequences, is(empty()));
+    }
+
+    private static void append(OffHeapMailbox mailbox, int clientId, long sequence) {
+        ByteBuffer payload = ByteBuffer.allocate(8);
+        payload.putLong(0, sequence * 100);
+        mailbox.append(clientId, sequence, payload);
+        assertThat(payload.remaining(), is(8));
+    }
+
+    private static Replay replay(OffHeapMailbox mailbox, int clientId, long afterSequence) {
+        Replay replay = new Replay();
+        replay.complete = mailbox.replay(clientId, afterSequence, (payload, sequence) -> {
+            replay.sequences.add(sequence);
+            replay.payloads.add(payload.getLong(payload.position()));
+        });
+        return replay;
+    }
+}